@@ -0,0 +1,23 @@
+plugins {
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+dependencies {
+    labyApi("api")
+    jmh(project(":core"))
+
+    // Stubs the static component factories, LabyMod only binds them inside the running client
+    jmh("org.mockito:mockito-core:5.11.0")
+}
+
+jmh {
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    benchmarkMode = listOf("thrpt")
+    timeUnit = "s"
+
+    // Reports the allocation rate and the allocated bytes per operation next to the throughput
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+}
\ No newline at end of file
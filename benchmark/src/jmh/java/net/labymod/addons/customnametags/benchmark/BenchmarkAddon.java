@@ -0,0 +1,91 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.labymod.addons.customnametags.benchmark;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.CustomNameTags;
+import net.labymod.addons.customnametags.CustomNameTagsConfiguration;
+import net.labymod.addons.customnametags.cache.ChatMessageCache;
+import net.labymod.addons.customnametags.context.ContextDispatchTable;
+import net.labymod.addons.customnametags.metrics.AddonMetrics;
+import net.labymod.addons.customnametags.registry.NameTagRegistry;
+import net.labymod.api.event.EventBus;
+
+/**
+ * The addon as its listeners see it once it is enabled. LabyMod only enables addons inside the
+ * running client, so everything the listeners read is created here with the default settings,
+ * like {@code CustomNameTags.enable} does without a store.
+ */
+final class BenchmarkAddon extends CustomNameTags {
+
+  private final CustomNameTagsConfiguration configuration = new CustomNameTagsConfiguration();
+  private final AddonMetrics metrics = new AddonMetrics(false);
+  private final ContextDispatchTable contextDispatchTable = new ContextDispatchTable(
+      mock(EventBus.class)
+  );
+  private final NameTagRegistry registry;
+  private final ChatMessageCache chatMessageCache;
+
+  BenchmarkAddon(Collection<CustomNameTag> tags) {
+    Map<String, CustomNameTag> tagsByName = new HashMap<>();
+    for (CustomNameTag tag : tags) {
+      tagsByName.put(tag.getOriginalName(), tag);
+    }
+
+    this.registry = new NameTagRegistry(this.configuration, null, tagsByName);
+    this.chatMessageCache = new ChatMessageCache(this.configuration.chatCacheSize().get());
+
+    // No listener is bound, the benchmarks call them directly
+    this.contextDispatchTable.update(this.configuration, this.registry.snapshot());
+  }
+
+  @Override
+  public CustomNameTagsConfiguration configuration() {
+    return this.configuration;
+  }
+
+  @Override
+  public NameTagRegistry registry() {
+    return this.registry;
+  }
+
+  @Override
+  public ChatMessageCache chatMessageCache() {
+    return this.chatMessageCache;
+  }
+
+  @Override
+  public AddonMetrics metrics() {
+    return this.metrics;
+  }
+
+  @Override
+  public ContextDispatchTable contextDispatchTable() {
+    return this.contextDispatchTable;
+  }
+
+  @Override
+  public void reloadTabList() {
+    // There is no player list outside of the client, switching a setting must not refresh it
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mockStatic;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.component.format.Style;
+import net.labymod.api.client.component.serializer.legacy.LegacyComponentSerializer;
+import org.mockito.MockedStatic;
+
+/**
+ * Text components for the benchmarks. LabyMod only binds its component implementation inside
+ * the running client, so the trees are built from small proxies instead. Reading a component
+ * does not allocate, so the allocations reported for the scans are those of the addon.
+ *
+ * <p>The static factories the replacement calls are redirected to these components while the
+ * factories are installed. They are stubbed, so the matched lines measure the work of the addon
+ * plus a constant overhead per created component, not the component implementation of the game.
+ */
+final class BenchmarkComponents {
+
+  private static final Style STYLE = (Style) Proxy.newProxyInstance(
+      BenchmarkComponents.class.getClassLoader(),
+      new Class<?>[]{Style.class},
+      (proxy, method, arguments) -> switch (method.getName()) {
+        case "merge" -> proxy; // All components share the same empty style
+        case "isEmpty" -> true;
+        case "hashCode" -> 0;
+        case "equals" -> proxy == arguments[0];
+        case "toString" -> "Style";
+        default -> throw new UnsupportedOperationException(method.toString());
+      }
+  );
+
+  private BenchmarkComponents() {
+  }
+
+  static TextComponent text(String text) {
+    Node node = new Node(text);
+    node.proxy = (TextComponent) Proxy.newProxyInstance(
+        BenchmarkComponents.class.getClassLoader(),
+        new Class<?>[]{TextComponent.class},
+        node
+    );
+    return node.proxy;
+  }
+
+  /**
+   * Builds a chat line like a modern server sends it, one text component per segment. The
+   * segments are spread over the given number of nested components in their order, each level
+   * holds its share of the segments followed by the next level, like a prefix that wraps the rest
+   * of the line.
+   *
+   * @param segments the texts of the line
+   * @param depth    the number of nested components, levels without a segment stay empty
+   */
+  static Component tree(String[] segments, int depth) {
+    TextComponent root = text("");
+    TextComponent level = root;
+    for (int levelIndex = 0; levelIndex < depth; levelIndex++) {
+      if (levelIndex > 0) {
+        TextComponent next = text("");
+        level.append(next);
+        level = next;
+      }
+
+      int from = levelIndex * segments.length / depth;
+      int to = (levelIndex + 1) * segments.length / depth;
+      for (int i = from; i < to; i++) {
+        level.append(text(segments[i]));
+      }
+    }
+
+    return root;
+  }
+
+  /**
+   * Builds a chat line like a legacy server sends it, a single text with formatting codes, at the
+   * bottom of the given number of nested components.
+   *
+   * @param segments the texts of the line, joined with formatting codes
+   * @param depth    the number of nested components
+   */
+  static Component legacy(String[] segments, int depth) {
+    return tree(new String[]{BenchmarkData.join(segments)}, depth);
+  }
+
+  /**
+   * Redirects the static component factories to these components on the current thread.
+   *
+   * @return the installed factories, closing them restores the original ones
+   */
+  static Factories install() {
+    LegacyComponentSerializer ampersand = serializer('&');
+    LegacyComponentSerializer section = serializer('§');
+
+    MockedStatic<Component> components = mockStatic(Component.class);
+    components.when(() -> Component.text(anyString())).thenAnswer(
+        invocation -> text(invocation.getArgument(0))
+    );
+    components.when(() -> Component.text(anyString(), any())).thenAnswer(
+        invocation -> text(invocation.getArgument(0))
+    );
+    components.when(Component::empty).thenAnswer(invocation -> text(""));
+
+    MockedStatic<LegacyComponentSerializer> serializers = mockStatic(
+        LegacyComponentSerializer.class
+    );
+    serializers.when(LegacyComponentSerializer::legacyAmpersand).thenReturn(ampersand);
+    serializers.when(LegacyComponentSerializer::legacySection).thenReturn(section);
+    return new Factories(components, serializers);
+  }
+
+  private static LegacyComponentSerializer serializer(char formatCharacter) {
+    return (LegacyComponentSerializer) Proxy.newProxyInstance(
+        BenchmarkComponents.class.getClassLoader(),
+        new Class<?>[]{LegacyComponentSerializer.class},
+        (proxy, method, arguments) -> switch (method.getName()) {
+          case "deserialize" -> deserialize((String) arguments[0], formatCharacter);
+          case "hashCode" -> System.identityHashCode(proxy);
+          case "equals" -> proxy == arguments[0];
+          case "toString" -> "LegacyComponentSerializer(" + formatCharacter + ")";
+          default -> throw new UnsupportedOperationException(method.toString());
+        }
+    );
+  }
+
+  // Splits the text at its formatting codes like the game does, the codes themselves are dropped
+  private static Component deserialize(String text, char formatCharacter) {
+    TextComponent root = text("");
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) != formatCharacter || i + 1 == text.length()) {
+        continue;
+      }
+
+      if (i > start) {
+        root.append(text(text.substring(start, i)));
+      }
+
+      start = i + 2;
+      i++;
+    }
+
+    if (start < text.length()) {
+      root.append(text(text.substring(start)));
+    }
+
+    return root;
+  }
+
+  static final class Factories implements AutoCloseable {
+
+    private final MockedStatic<Component> components;
+    private final MockedStatic<LegacyComponentSerializer> serializers;
+
+    private Factories(
+        MockedStatic<Component> components,
+        MockedStatic<LegacyComponentSerializer> serializers
+    ) {
+      this.components = components;
+      this.serializers = serializers;
+    }
+
+    @Override
+    public void close() {
+      this.serializers.close();
+      this.components.close();
+    }
+  }
+
+  private static final class Node implements InvocationHandler {
+
+    private String text;
+    private List<Component> children = new ArrayList<>();
+    private TextComponent proxy;
+
+    private Node(String text) {
+      this.text = text;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] arguments) {
+      int parameters = method.getParameterCount();
+      switch (method.getName()) {
+        case "getText":
+          return this.text;
+        case "text":
+          this.text = (String) arguments[0];
+          return this.proxy;
+        case "getChildren":
+          return this.children;
+        case "setChildren":
+          this.children = new ArrayList<>((List<Component>) arguments[0]);
+          return this.proxy;
+        case "append":
+          if (parameters == 1) {
+            this.children.add((Component) arguments[0]);
+          } else {
+            this.children.add((int) arguments[0], (Component) arguments[1]);
+          }
+          return this.proxy;
+        case "style":
+          return parameters == 0 ? STYLE : this.proxy;
+        case "copy":
+          TextComponent copy = text(this.text);
+          for (Component child : this.children) {
+            copy.append(child.copy());
+          }
+          return copy;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == arguments[0];
+        case "toString":
+          return this.text + this.children;
+        default:
+          throw new UnsupportedOperationException(method.toString());
+      }
+    }
+  }
+}
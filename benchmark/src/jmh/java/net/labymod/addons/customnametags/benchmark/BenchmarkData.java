@@ -0,0 +1,171 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.labymod.addons.customnametags.CustomNameTag;
+
+/**
+ * Generates the tag sets and chat lines shared by the benchmarks. Everything is derived from a
+ * fixed seed, so runs with the same parameters measure the same input.
+ */
+final class BenchmarkData {
+
+  static final int MESSAGES = 1024;
+
+  private static final String[] WORDS = {
+      "joined", "the", "game", "has", "left", "[VIP]", "killed", "by", "won", "round", ">>",
+      "Bedwars", "team", "Red", "Blue", "bed", "destroyed", "!", "gg", "wp"
+  };
+
+  private final Random random = new Random(0x5EED);
+  private final List<CustomNameTag> tags;
+
+  BenchmarkData(int tagCount) {
+    this.tags = new ArrayList<>(tagCount);
+    for (int i = 0; i < tagCount; i++) {
+      String name = this.name(i);
+      this.tags.add(CustomNameTag.of(name, "&c[Staff] &f" + name, true, false));
+    }
+  }
+
+  List<CustomNameTag> tags() {
+    return this.tags;
+  }
+
+  String randomTagName() {
+    return this.tags.get(this.random.nextInt(this.tags.size())).getOriginalName();
+  }
+
+  /**
+   * Creates chat lines split into the given number of text segments, each of which becomes one
+   * text component of the line.
+   *
+   * @param segments   the number of text segments per line
+   * @param matchShare the share of lines that contain a tagged name
+   * @return the segments of every line
+   */
+  String[][] messages(int segments, double matchShare) {
+    String[] names = new String[MESSAGES];
+    for (int message = 0; message < MESSAGES; message++) {
+      names[message] = this.randomTagName();
+    }
+
+    return this.messages(segments, matchShare, names);
+  }
+
+  /**
+   * Creates lines like {@link #messages(int, double)}, but a matching line contains the name at
+   * the same index instead of a random one.
+   *
+   * @param segments   the number of text segments per line
+   * @param matchShare the share of lines that contain their name
+   * @param names      the name that may appear in every line
+   * @return the segments of every line
+   */
+  String[][] messages(int segments, double matchShare, String[] names) {
+    String[][] messages = new String[MESSAGES][segments];
+    for (int message = 0; message < MESSAGES; message++) {
+      boolean match = this.random.nextDouble() < matchShare;
+      int matchSegment = this.random.nextInt(segments);
+      for (int segment = 0; segment < segments; segment++) {
+        StringBuilder builder = new StringBuilder();
+        if (match && segment == matchSegment) {
+          builder.append(names[message]).append(' ');
+        } else {
+          builder.append("Guest").append(this.random.nextInt(100_000)).append(' ');
+        }
+
+        for (int word = 0; word < 3; word++) {
+          builder.append(WORDS[this.random.nextInt(WORDS.length)]).append(' ');
+        }
+
+        messages[message][segment] = builder.toString();
+      }
+    }
+
+    return messages;
+  }
+
+  /**
+   * Creates the names of online players, a share of which have a tag.
+   *
+   * @param players  the number of players
+   * @param tagShare the share of players with a tag
+   * @return the name of every player
+   */
+  String[] playerNames(int players, double tagShare) {
+    String[] names = new String[players];
+    for (int player = 0; player < players; player++) {
+      names[player] = this.random.nextDouble() < tagShare
+          ? this.randomTagName()
+          : "Guest" + this.random.nextInt(100_000);
+    }
+
+    return names;
+  }
+
+  /**
+   * Creates name tags like the game shows them above heads and in the player list, rank and team
+   * segments followed by the name of the player.
+   *
+   * @param segments the number of text segments per name tag, the last one is the name
+   * @param names    the name at the end of every name tag
+   * @return the segments of every name tag
+   */
+  String[][] nameTags(int segments, String[] names) {
+    String[][] nameTags = new String[names.length][segments];
+    for (int nameTag = 0; nameTag < names.length; nameTag++) {
+      for (int segment = 0; segment < segments - 1; segment++) {
+        nameTags[nameTag][segment] = WORDS[this.random.nextInt(WORDS.length)] + ' ';
+      }
+
+      nameTags[nameTag][segments - 1] = names[nameTag];
+    }
+
+    return nameTags;
+  }
+
+  static String join(String[] segments) {
+    StringBuilder builder = new StringBuilder();
+    for (String segment : segments) {
+      builder.append("§7").append(segment);
+    }
+
+    return builder.toString();
+  }
+
+  private String name(int index) {
+    StringBuilder builder = new StringBuilder();
+    int length = 4 + this.random.nextInt(12);
+    for (int i = 0; i < length; i++) {
+      int character = this.random.nextInt(37);
+      if (character < 26) {
+        builder.append((char) ((i % 3 == 0 ? 'A' : 'a') + character));
+      } else if (character < 36) {
+        builder.append((char) ('0' + character - 26));
+      } else {
+        builder.append('_');
+      }
+    }
+
+    // Keeps the names unique even for the largest tag sets
+    return builder.append(index).toString();
+  }
+}
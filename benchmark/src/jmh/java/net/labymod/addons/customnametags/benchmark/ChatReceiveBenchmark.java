@@ -0,0 +1,149 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.listener.ChatReceiveListener;
+import net.labymod.addons.customnametags.matcher.NamePrefilter;
+import net.labymod.api.client.chat.ChatMessage;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.event.client.chat.ChatReceiveEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures {@link ChatReceiveListener#onChatReceive} on component trees: the prefilter, the scan
+ * of the flattened text, the chat message cache, the conversion of legacy texts and the
+ * replacement itself. Every message is copied before it is received, like the fresh component
+ * every chat packet produces, {@link #copyMessage()} measures that copy alone. The chat message
+ * cache is smaller than the set of messages, so a matching message mostly measures a cache miss.
+ *
+ * <p>The event is stubbed, its getters add a constant overhead to every operation.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChatReceiveBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int tagCount;
+
+  @Param({"1", "4", "16"})
+  private int segments;
+
+  @Param({"1", "4", "16"})
+  private int depth;
+
+  @Param({"0.0", "0.1", "0.5"})
+  private double matchShare;
+
+  @Param({"0", "16", "256"})
+  private int patternCount;
+
+  @Param({"false", "true"})
+  private boolean legacy;
+
+  private BenchmarkComponents.Factories factories;
+  private ChatReceiveListener listener;
+  private NamePrefilter prefilter;
+  private ChatReceiveEvent event;
+  private Component[] messages;
+  private String[] formattedTexts;
+  private Component message;
+  private String formattedText;
+  private int next;
+
+  @Setup
+  public void setup() {
+    // Before anything of the listener is loaded, it may create components while it is set up
+    this.factories = BenchmarkComponents.install();
+
+    BenchmarkData data = new BenchmarkData(this.tagCount);
+    List<CustomNameTag> tags = new ArrayList<>(data.tags());
+    for (int i = 0; i < this.patternCount; i++) {
+      CustomNameTag patternTag = CustomNameTag.of("Npc" + i + "_*", "&eNPC", true, false);
+      patternTag.setPattern(true);
+      tags.add(patternTag);
+    }
+
+    BenchmarkAddon addon = new BenchmarkAddon(tags);
+    this.listener = new ChatReceiveListener(addon);
+    this.prefilter = addon.registry().snapshot().forContext(NameTagContext.CHAT).prefilter();
+
+    ChatMessage chatMessage = mock(ChatMessage.class, withSettings().stubOnly());
+    when(chatMessage.getFormattedText()).thenAnswer(invocation -> this.formattedText);
+    this.event = mock(ChatReceiveEvent.class, withSettings().stubOnly());
+    when(this.event.chatMessage()).thenReturn(chatMessage);
+    when(this.event.message()).thenAnswer(invocation -> this.message);
+    doAnswer(invocation -> {
+      this.message = invocation.getArgument(0);
+      return null;
+    }).when(this.event).setMessage(any());
+
+    String[][] messages = data.messages(this.segments, this.matchShare);
+    this.messages = new Component[messages.length];
+    this.formattedTexts = new String[messages.length];
+    for (int i = 0; i < messages.length; i++) {
+      this.messages[i] = this.legacy
+          ? BenchmarkComponents.legacy(messages[i], this.depth)
+          : BenchmarkComponents.tree(messages[i], this.depth);
+      this.formattedTexts[i] = BenchmarkData.join(messages[i]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.factories.close();
+  }
+
+  @Benchmark
+  public boolean prefilter() {
+    return this.prefilter.mayMatch(this.messages[this.nextMessage()]);
+  }
+
+  @Benchmark
+  public Component copyMessage() {
+    return this.messages[this.nextMessage()].copy();
+  }
+
+  @Benchmark
+  public Component chatReceive() {
+    int message = this.nextMessage();
+    this.message = this.messages[message].copy();
+    this.formattedText = this.formattedTexts[message];
+    this.listener.onChatReceive(this.event);
+    return this.message;
+  }
+
+  private int nextMessage() {
+    return this.next++ & (BenchmarkData.MESSAGES - 1);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.matcher.SuffixTrie;
+import net.labymod.addons.customnametags.matcher.TagIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures both lookups of {@code PlayerNameTagRenderListener} on their own: the name index used
+ * above heads and the suffix trie used in the tab list. {@link NameTagRenderBenchmark} measures
+ * them inside the listener.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NameTagLookupBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int tagCount;
+
+  @Param({"0.0", "0.1", "0.5"})
+  private double matchShare;
+
+  private TagIndex tagIndex;
+  private SuffixTrie suffixTrie;
+  private String[] playerNames;
+  private String[] tabListTexts;
+  private int next;
+
+  @Setup
+  public void setup() {
+    BenchmarkData data = new BenchmarkData(this.tagCount);
+    this.tagIndex = TagIndex.of(data.tags());
+    this.suffixTrie = SuffixTrie.compile(data.tags());
+
+    Random random = new Random(0x7AB);
+    this.playerNames = new String[BenchmarkData.MESSAGES];
+    this.tabListTexts = new String[BenchmarkData.MESSAGES];
+    for (int i = 0; i < this.playerNames.length; i++) {
+      String name = random.nextDouble() < this.matchShare
+          ? data.randomTagName().toLowerCase()
+          : "Guest" + random.nextInt(100_000);
+
+      this.playerNames[i] = name;
+      this.tabListTexts[i] = "[Team" + random.nextInt(16) + "] " + name + " ";
+    }
+  }
+
+  @Benchmark
+  public CustomNameTag nameIndex() {
+    return this.tagIndex.get(this.playerNames[this.nextName()]);
+  }
+
+  @Benchmark
+  public CustomNameTag tabListSuffix() {
+    return this.suffixTrie.findSuffix(this.tabListTexts[this.nextName()]);
+  }
+
+  private int nextName() {
+    return this.next++ & (BenchmarkData.MESSAGES - 1);
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import net.labymod.addons.customnametags.listener.PlayerNameTagRenderListener;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.entity.player.GameProfile;
+import net.labymod.api.client.network.NetworkPlayerInfo;
+import net.labymod.api.client.scoreboard.ScoreboardTeam;
+import net.labymod.api.event.client.render.PlayerNameTagRenderEvent;
+import net.labymod.api.event.client.render.PlayerNameTagRenderEvent.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures {@link PlayerNameTagRenderListener#onPlayerNameTagRender} for the name tags of a full
+ * server, every player renders once per round. {@link #render()} measures the frames after the
+ * first one, which the render cache or the team line cache answer, {@link #renderUncached()}
+ * forgets both caches before every name tag and measures the lookup, the prefilter and the
+ * replacement.
+ *
+ * <p>The event and the players are stubbed, their getters add a constant overhead to every
+ * operation.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NameTagRenderBenchmark {
+
+  // A power of two, the players are picked by a mask
+  private static final int PLAYERS = 256;
+  private static final int TEAMS = 16;
+
+  @Param({"10", "1000", "100000"})
+  private int tagCount;
+
+  @Param({"1", "4", "16"})
+  private int segments;
+
+  @Param({"1", "4", "16"})
+  private int depth;
+
+  @Param({"0.0", "0.1", "0.5"})
+  private double tagShare;
+
+  @Param({"false", "true"})
+  private boolean legacy;
+
+  @Param
+  private Lookup lookup;
+
+  private BenchmarkComponents.Factories factories;
+  private PlayerNameTagRenderListener listener;
+  private PlayerNameTagRenderEvent event;
+  private NetworkPlayerInfo[] players;
+  private Component[] nameTags;
+  private NetworkPlayerInfo player;
+  private Component nameTag;
+  private int next;
+
+  @Setup
+  public void setup() {
+    // Before anything of the listener is loaded, it may create components while it is set up
+    this.factories = BenchmarkComponents.install();
+
+    BenchmarkData data = new BenchmarkData(this.tagCount);
+    BenchmarkAddon addon = new BenchmarkAddon(data.tags());
+    addon.configuration().checkForStringInTabList().set(this.lookup == Lookup.TAB_LIST_SUFFIX);
+    this.listener = new PlayerNameTagRenderListener(addon);
+
+    this.event = mock(PlayerNameTagRenderEvent.class, withSettings().stubOnly());
+    when(this.event.context()).thenReturn(this.lookup.context);
+    when(this.event.getPlayerInfo()).thenAnswer(invocation -> this.player);
+    when(this.event.nameTag()).thenAnswer(invocation -> this.nameTag);
+    doAnswer(invocation -> {
+      this.nameTag = invocation.getArgument(0);
+      return null;
+    }).when(this.event).setNameTag(any());
+
+    String[] names = data.playerNames(PLAYERS, this.tagShare);
+    String[][] nameTags = data.nameTags(this.segments, names);
+    this.players = new NetworkPlayerInfo[PLAYERS];
+    this.nameTags = new Component[PLAYERS];
+    for (int i = 0; i < PLAYERS; i++) {
+      GameProfile profile = mock(GameProfile.class, withSettings().stubOnly());
+      when(profile.getUsername()).thenReturn(names[i]);
+      when(profile.getUniqueId()).thenReturn(new UUID(0, i));
+
+      ScoreboardTeam team = null;
+      if (this.lookup == Lookup.ABOVE_HEAD_TEAM) {
+        team = mock(ScoreboardTeam.class, withSettings().stubOnly());
+        when(team.getTeamName()).thenReturn("team" + i % TEAMS);
+      }
+
+      NetworkPlayerInfo player = mock(NetworkPlayerInfo.class, withSettings().stubOnly());
+      when(player.profile()).thenReturn(profile);
+      when(player.getTeam()).thenReturn(team);
+      this.players[i] = player;
+      this.nameTags[i] = this.legacy
+          ? BenchmarkComponents.legacy(nameTags[i], this.depth)
+          : BenchmarkComponents.tree(nameTags[i], this.depth);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.factories.close();
+  }
+
+  @Benchmark
+  public Component render() {
+    int player = this.next++ & (PLAYERS - 1);
+    this.player = this.players[player];
+    this.nameTag = this.nameTags[player];
+    this.listener.onPlayerNameTagRender(this.event);
+    return this.nameTag;
+  }
+
+  @Benchmark
+  public Component renderUncached() {
+    this.listener.invalidateAll();
+    return this.render();
+  }
+
+  /**
+   * The paths of the listener that find the tag of a player.
+   */
+  public enum Lookup {
+
+    // By the unique id and the name of the player, cached per player
+    ABOVE_HEAD(Context.PLAYER_RENDER),
+    // Like above the head, but the lines of a team are cached per team line
+    ABOVE_HEAD_TEAM(Context.PLAYER_RENDER),
+    // Like above the head, with the search of the player list texts switched off
+    TAB_LIST(Context.TAB_LIST),
+    // By the end of any text of the name tag, the search of the player list texts
+    TAB_LIST_SUFFIX(Context.TAB_LIST);
+
+    private final Context context;
+
+    Lookup(Context context) {
+      this.context = context;
+    }
+  }
+}
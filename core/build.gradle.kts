@@ -6,6 +6,14 @@ dependencies {
 
     // An example of how to add an external dependency that is used by the addon.
     // addonMavenDependency("org.jeasy:easy-random:5.0.0")
+
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testImplementation("org.mockito:mockito-core:5.11.0")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.10.2")
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 labyModAnnotationProcessor {
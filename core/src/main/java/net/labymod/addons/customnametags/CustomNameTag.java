@@ -16,9 +16,13 @@
 
 package net.labymod.addons.customnametags;
 
+import java.util.UUID;
+import net.labymod.addons.customnametags.background.NameTagBackground;
+import net.labymod.addons.customnametags.cache.DisplayNamePool;
+import net.labymod.addons.customnametags.context.NameTagContext;
 import net.labymod.api.client.component.Component;
-import net.labymod.api.client.component.serializer.legacy.LegacyComponentSerializer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class CustomNameTag {
 
@@ -31,16 +35,34 @@ public class CustomNameTag {
     return new CustomNameTag(originalName, customName, enabled, replaceScoreboard);
   }
 
+  public static @NotNull CustomNameTag of(
+      @NotNull String originalName,
+      @NotNull String customName,
+      boolean enabled,
+      boolean replaceScoreboard,
+      @Nullable UUID uniqueId
+  ) {
+    CustomNameTag customNameTag = new CustomNameTag(originalName, customName, enabled, replaceScoreboard);
+    customNameTag.uniqueId = uniqueId;
+    return customNameTag;
+  }
+
   public static @NotNull CustomNameTag ofDefault() {
     return CustomNameTag.of("", "", true, false);
   }
 
+  private static final int STORED_CONTEXTS = NameTagContext.ALL & ~NameTagContext.SCOREBOARD.mask();
+
   private String originalName;
   private boolean enabled;
   private String customName;
   private boolean replaceScoreboard;
+  private UUID uniqueId;
+  private NameTagBackground background;
+  private boolean pattern;
+  private int disabledContexts;
 
-  private transient Component displayName;
+  private transient int version;
 
   private CustomNameTag(@NotNull String originalName, @NotNull String customName, boolean enabled, boolean replaceScoreboard) {
     this.enabled = enabled;
@@ -54,6 +76,7 @@ public class CustomNameTag {
 
   public void setEnabled(boolean enabled) {
     this.enabled = enabled;
+    this.version++;
   }
 
   public String getCustomName() {
@@ -66,7 +89,7 @@ public class CustomNameTag {
     }
 
     this.customName = customName;
-    this.displayName = null;
+    this.version++;
   }
 
   public boolean isReplaceScoreboard() {
@@ -75,21 +98,108 @@ public class CustomNameTag {
 
   public void setReplaceScoreboard(boolean replaceScoreboard) {
     this.replaceScoreboard = replaceScoreboard;
+    this.version++;
   }
 
+  /**
+   * Returns the parsed custom name. The component is interned and shared with every tag of the
+   * same custom name, so it must not be modified.
+   *
+   * @return the parsed custom name
+   * @see DisplayNamePool#instantiate(String, net.labymod.api.client.component.format.Style)
+   */
   public Component displayName() {
-    if(this.displayName == null) {
-      this.displayName = LegacyComponentSerializer.legacyAmpersand().deserialize(this.customName);
-    }
-
-    return this.displayName;
+    return DisplayNamePool.global().intern(this.customName);
   }
 
   public void setOriginalName(String originalName) {
     this.originalName = originalName;
+    this.version++;
   }
 
   public String getOriginalName() {
     return this.originalName;
   }
+
+  /**
+   * Returns the unique id of the player this tag is bound to. A bound tag keeps working after the
+   * player changed their name.
+   *
+   * @return the unique id or {@code null} if the tag only applies to the original name
+   */
+  public @Nullable UUID getUniqueId() {
+    return this.uniqueId;
+  }
+
+  public void setUniqueId(@Nullable UUID uniqueId) {
+    this.uniqueId = uniqueId;
+    this.version++;
+  }
+
+  /**
+   * Returns the name tag background of this tag.
+   *
+   * @return the background or {@code null} if the background of the configuration is used
+   */
+  public @Nullable NameTagBackground getBackground() {
+    return this.background;
+  }
+
+  public void setBackground(@Nullable NameTagBackground background) {
+    this.background = background;
+    this.version++;
+  }
+
+  /**
+   * Returns whether the original name is a pattern that applies this tag to every matching name.
+   *
+   * @return whether this is a pattern tag
+   * @see net.labymod.addons.customnametags.matcher.NamePatterns
+   */
+  public boolean isPattern() {
+    return this.pattern;
+  }
+
+  public void setPattern(boolean pattern) {
+    this.pattern = pattern;
+    this.version++;
+  }
+
+  /**
+   * Returns the contexts this tag is switched off in. Tags are enabled in every context by default,
+   * so tags of older versions stay unchanged. The scoreboard context is never stored here, it is
+   * {@link #isReplaceScoreboard()}.
+   *
+   * @return the bit mask of the disabled contexts
+   * @see NameTagContext#mask()
+   */
+  public int getDisabledContexts() {
+    return this.disabledContexts;
+  }
+
+  public void setDisabledContexts(int disabledContexts) {
+    this.disabledContexts = disabledContexts & STORED_CONTEXTS;
+    this.version++;
+  }
+
+  public int getEnabledContexts() {
+    int enabledContexts = STORED_CONTEXTS & ~this.disabledContexts;
+    return this.replaceScoreboard
+        ? enabledContexts | NameTagContext.SCOREBOARD.mask()
+        : enabledContexts;
+  }
+
+  public boolean isEnabledIn(@NotNull NameTagContext context) {
+    return (this.getEnabledContexts() & context.mask()) != 0;
+  }
+
+  /**
+   * Returns a counter that is increased whenever the tag is edited, so rendered results of an
+   * older state can be detected.
+   *
+   * @return the current version of the tag
+   */
+  public int getVersion() {
+    return this.version;
+  }
 }
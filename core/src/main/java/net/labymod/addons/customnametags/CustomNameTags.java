@@ -16,14 +16,34 @@
 
 package net.labymod.addons.customnametags;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.Supplier;
+import java.util.Map;
+import net.labymod.addons.customnametags.cache.ChatMessageCache;
+import net.labymod.addons.customnametags.cache.DisplayNamePool;
+import net.labymod.addons.customnametags.cache.HeadIconCache;
+import net.labymod.addons.customnametags.context.ContextDispatchTable;
+import net.labymod.addons.customnametags.context.NameTagContext;
 import net.labymod.addons.customnametags.listener.ChatReceiveListener;
 import net.labymod.addons.customnametags.listener.ConfigVersionUpdateListener;
+import net.labymod.addons.customnametags.listener.GameShutdownListener;
 import net.labymod.addons.customnametags.listener.NameTagBackgroundRenderListener;
+import net.labymod.addons.customnametags.listener.NameTagCacheListener;
+import net.labymod.addons.customnametags.listener.PlayerInfoListener;
 import net.labymod.addons.customnametags.listener.PlayerNameTagRenderListener;
+import net.labymod.addons.customnametags.matcher.NameMatcher;
+import net.labymod.addons.customnametags.metrics.AddonMetrics;
+import net.labymod.addons.customnametags.profile.ProfileResolver;
+import net.labymod.addons.customnametags.registry.NameTagChange;
+import net.labymod.addons.customnametags.registry.NameTagRegistry;
+import net.labymod.addons.customnametags.replace.NameReplacer;
+import net.labymod.addons.customnametags.store.NameTagStore;
+import net.labymod.addons.customnametags.transfer.SharedTagDirectory;
+import net.labymod.api.Constants.Files;
 import net.labymod.api.addon.LabyAddon;
+import net.labymod.api.client.Minecraft;
 import net.labymod.api.client.component.Component;
 import net.labymod.api.client.component.TextComponent;
 import net.labymod.api.client.component.TranslatableComponent;
@@ -36,8 +56,22 @@ import net.labymod.api.models.addon.annotation.AddonMain;
 @AddonMain
 public class CustomNameTags extends LabyAddon<CustomNameTagsConfiguration> {
 
+  private static final int MAXIMUM_RESOLVED_PROFILES = 1024;
+  private static final int MAXIMUM_HEAD_ICONS = 256;
+
   private static CustomNameTags instance;
 
+  private final NameReplacer nameReplacer = new NameReplacer();
+  private final ProfileResolver profileResolver = new ProfileResolver(MAXIMUM_RESOLVED_PROFILES);
+  private final HeadIconCache headIconCache = new HeadIconCache(MAXIMUM_HEAD_ICONS);
+
+  private NameTagRegistry registry;
+  private ChatMessageCache chatMessageCache;
+  private AddonMetrics metrics;
+  private ContextDispatchTable contextDispatchTable;
+  private PlayerNameTagRenderListener nameTagRenderListener;
+  private SharedTagDirectory sharedTagDirectory;
+
   public CustomNameTags() {
     instance = this;
   }
@@ -55,162 +89,252 @@ public class CustomNameTags extends LabyAddon<CustomNameTagsConfiguration> {
   protected void enable() {
     this.registerSettingCategory();
     this.configuration().removeInvalidNameTags();
+    this.registry = this.loadRegistry();
+    DisplayNamePool.global().setShared(this.configuration().shareDisplayNames().get());
+    this.chatMessageCache = new ChatMessageCache(this.configuration().chatCacheSize().get());
+    this.metrics = new AddonMetrics(this.configuration().collectMetrics().get());
+
+    // Listeners of contexts without any enabled tag are not subscribed at all
+    this.contextDispatchTable = new ContextDispatchTable(this.labyAPI().eventBus());
+    this.contextDispatchTable.bind(new ChatReceiveListener(this), NameTagContext.CHAT);
+    this.nameTagRenderListener = new PlayerNameTagRenderListener(this);
+    this.contextDispatchTable.bind(
+        this.nameTagRenderListener,
+        NameTagContext.ABOVE_HEAD,
+        NameTagContext.TAB_LIST
+    );
+    this.contextDispatchTable.update(this.configuration(), this.registry.snapshot());
+    this.registry.addChangeListener(this::onNameTagChange);
 
-    this.registerListener(new ChatReceiveListener(this));
     this.registerListener(new NameTagBackgroundRenderListener(this));
-    this.registerListener(new PlayerNameTagRenderListener(this));
+    this.registerListener(new NameTagCacheListener(this.nameTagRenderListener));
+    this.registerListener(new PlayerInfoListener(this.profileResolver));
+    this.registerListener(new GameShutdownListener(this));
+
+    this.sharedTagDirectory = new SharedTagDirectory(
+        Files.CONFIGS.resolve("customnametags").resolve("shared"),
+        this.registry,
+        this.logger()
+    );
+    try {
+      this.sharedTagDirectory.start();
+    } catch (IOException exception) {
+      this.logger().error("Could not watch the shared custom name tags", exception);
+    }
 
     if (this.wasLoadedInRuntime()) {
       this.reloadTabList();
     }
   }
 
+  private NameTagRegistry loadRegistry() {
+    CustomNameTagsConfiguration configuration = this.configuration();
+    NameTagStore store = new NameTagStore(Files.CONFIGS.resolve("customnametags"), this.logger());
+    Map<String, CustomNameTag> customTags;
+    try {
+      customTags = store.load();
+    } catch (IOException exception) {
+      this.logger().error("Could not load the custom name tags, changes are kept in the"
+          + " configuration until the next start", exception);
+      return new NameTagRegistry(configuration, null, configuration.getCustomTags());
+    }
+
+    Map<String, CustomNameTag> legacyTags = configuration.getCustomTags();
+    if (!legacyTags.isEmpty()) {
+      // Tags of older versions are stored in the configuration, move them into the store. The
+      // configuration also holds all tags if the last edit could not be stored, in both cases
+      // it is complete and newer than the store, so it replaces the stored tags.
+      customTags = new HashMap<>(legacyTags);
+      try {
+        store.compact(customTags.values());
+        configuration.setCustomTags(new HashMap<>());
+        this.saveConfiguration();
+        this.logger().info("Moved " + legacyTags.size() + " custom name tags into the store.");
+      } catch (IOException exception) {
+        this.logger().error("Could not move the custom name tags into the store", exception);
+        return new NameTagRegistry(configuration, null, customTags);
+      }
+    }
+
+    return new NameTagRegistry(configuration, store, customTags);
+  }
+
   @Override
   protected Class<CustomNameTagsConfiguration> configurationClass() {
     return CustomNameTagsConfiguration.class;
   }
 
-  public void reloadTabList() {
-    this.labyAPI().eventBus().fire(new PlayerListUpdateEvent());
+  public NameTagRegistry registry() {
+    return this.registry;
   }
 
-  public boolean replaceUsername(
-      Component component,
-      String playerName,
-      Supplier<Component> customName
-  ) {
-    boolean replaced = false;
-    for (Component child : component.getChildren()) {
-      if (this.replaceUsername(child, playerName, customName)) {
-        replaced = true;
-      }
+  public ProfileResolver profileResolver() {
+    return this.profileResolver;
+  }
+
+  public HeadIconCache headIconCache() {
+    return this.headIconCache;
+  }
+
+  public ChatMessageCache chatMessageCache() {
+    return this.chatMessageCache;
+  }
+
+  public AddonMetrics metrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Releases the files and threads of the addon when the game shuts down.
+   */
+  public void close() {
+    this.sharedTagDirectory.close();
+    this.registry.close();
+  }
+
+  public ContextDispatchTable contextDispatchTable() {
+    return this.contextDispatchTable;
+  }
+
+  /**
+   * Recompiles the active contexts after a switch or a tag changed and refreshes the player list if
+   * one of them was switched on or off.
+   */
+  public void updateContexts() {
+    if (this.contextDispatchTable == null) {
+      return; // The configuration is loaded before the addon is enabled
     }
 
-    if (component instanceof TranslatableComponent) {
-      for (Component argument : ((TranslatableComponent) component).getArguments()) {
-        if (this.replaceUsername(argument, playerName, customName)) {
-          replaced = true;
-        }
-      }
+    Minecraft minecraft = this.labyAPI().minecraft();
+    if (!minecraft.isOnRenderThread()) {
+      minecraft.executeOnRenderThread(this::updateContexts);
+      return;
     }
 
-    if (component instanceof TextComponent textComponent) {
-      String text = textComponent.getText();
-      Style style = textComponent.style();
-
-      int next = text.indexOf(playerName);
-      if (next != -1) {
-        replaced = true;
-        int length = text.length();
-        if (next == 0) {
-          if (length == playerName.length()) {
-            textComponent.text("");
-
-            Component customNameComponent = customName.get();
-            customNameComponent.style(customNameComponent.style().merge(style, Strategy.IF_ABSENT_ON_TARGET));
-            component.append(0, customNameComponent);
-            return true;
-          }
-        }
+    if (this.contextDispatchTable.update(this.configuration(), this.registry.snapshot())) {
+      this.reloadTabList();
+    }
+  }
 
-        textComponent.text("");
-        int lastNameAt = 0;
-        int childIndex = 0;
-        for (int i = 0; i < length; i++) {
-          if (i != next) {
-            continue;
-          }
-
-          int nameEndsAt = i + playerName.length();
-
-          // Replace the name multiple times in the same text component
-          next = text.indexOf(playerName, nameEndsAt);
-
-          // Skip when player name is not at the start and the character in front of the name is a valid name character
-          if (i != 0) {
-            char character = text.charAt(i - 1);
-
-            if ((character >= 'A' && character <= 'Z') ||
-                (character >= 'a' && character <= 'z') ||
-                (character >= '0' && character <= '9') ||
-                character == '_') {
-              continue;
-            }
-          }
-
-          // Skip when player name is not at the end and the character after the name is a valid name character
-          if (nameEndsAt < length) {
-            char character = text.charAt(nameEndsAt);
-
-            if ((character >= 'A' && character <= 'Z') ||
-                (character >= 'a' && character <= 'z') ||
-                (character >= '0' && character <= '9') ||
-                character == '_') {
-              continue;
-            }
-          }
-
-          if (i > lastNameAt) {
-            Component spacerComponent = Component.text(text.substring(lastNameAt, i));
-            spacerComponent.style(spacerComponent.style().merge(style, Strategy.IF_ABSENT_ON_TARGET));
-            component.append(childIndex++, spacerComponent);
-          }
-
-          Component customNameComponent = customName.get();
-          customNameComponent.style(customNameComponent.style().merge(style, Strategy.IF_ABSENT_ON_TARGET));
-          component.append(childIndex++, customNameComponent);
-          lastNameAt = nameEndsAt;
-
-          // Skip unnecessary loop
-          if (next == -1) {
-            break;
-          }
-        }
+  /**
+   * Recompiles the active contexts and forgets the cached name tags of the players whose tag
+   * changed. The player list is refreshed at most once per change, and only if it is affected.
+   *
+   * @param change the published change of the registry
+   */
+  private void onNameTagChange(NameTagChange change) {
+    Minecraft minecraft = this.labyAPI().minecraft();
+    if (!minecraft.isOnRenderThread()) {
+      minecraft.executeOnRenderThread(() -> this.onNameTagChange(change));
+      return;
+    }
 
-        // no way to properly check for this in chat
-        if (lastNameAt < length) {
-          Component spacerComponent = Component.text(text.substring(lastNameAt));
-          spacerComponent.style(spacerComponent.style().merge(style, Strategy.IF_ABSENT_ON_TARGET));
-          component.append(childIndex, spacerComponent);
-        }
-      }
+    boolean contextsChanged = this.contextDispatchTable.update(
+        this.configuration(),
+        this.registry.snapshot()
+    );
+    boolean tagsChanged = this.nameTagRenderListener.invalidate(change);
+    if (contextsChanged || tagsChanged) {
+      this.reloadTabList();
     }
+  }
 
-    return replaced;
+  public void reloadTabList() {
+    this.labyAPI().eventBus().fire(new PlayerListUpdateEvent());
   }
 
-  public Component replaceLegacyContext(Component component) {
-    List<Component> children = new ArrayList<>();
-    for (Component child : component.getChildren()) {
-      children.add(this.replaceLegacyContext(child));
+  /**
+   * Replaces every name the matcher finds with its custom name, walking the component tree only
+   * once.
+   *
+   * @param component the component to replace the names in
+   * @param matcher   the matcher for the names
+   * @return whether at least one name was replaced
+   */
+  public boolean replaceUsernames(Component component, NameMatcher matcher) {
+    return this.nameReplacer.replace(component, matcher);
+  }
+
+  /**
+   * Checks whether the plain text of the component tree may contain a name of the matcher. It is
+   * meant to skip copying and converting components without any name, and also finds names that
+   * span several components.
+   *
+   * @param component the component to check
+   * @param matcher   the matcher for the names
+   * @return whether a name may be replaced in the component
+   */
+  public boolean mayContainName(Component component, NameMatcher matcher) {
+    return this.nameReplacer.mayContain(component, matcher);
+  }
+
+  /**
+   * Converts legacy formatted texts into components, but only for texts that may contain a name of
+   * the matcher. Children and argument lists are only rebuilt if one of their entries changed,
+   * untouched components are returned as they are.
+   *
+   * @param component the component to convert
+   * @param matcher   the matcher for the names
+   * @return the converted component or the given one if nothing had to be converted
+   */
+  public Component replaceLegacyContext(Component component, NameMatcher matcher) {
+    List<Component> children = this.replaceLegacyContext(component.getChildren(), matcher);
+    if (children != null) {
+      component.setChildren(children);
+    } else {
+      children = component.getChildren();
     }
-    component.setChildren(children);
 
     if (component instanceof TranslatableComponent translatableComponent) {
-      List<Component> arguments = new ArrayList<>();
-      for (Component argument : translatableComponent.getArguments()) {
-        arguments.add(this.replaceLegacyContext(argument));
+      List<Component> arguments = this.replaceLegacyContext(
+          translatableComponent.getArguments(),
+          matcher
+      );
+
+      if (arguments != null) {
+        translatableComponent.arguments(arguments);
       }
-      translatableComponent.arguments(arguments);
     }
 
     if (component instanceof TextComponent textComponent) {
       String text = textComponent.getText();
 
-      if (text.indexOf('§') != -1) {
+      if (text.indexOf('§') != -1 && matcher.containsAny(text)) {
         Style style = component.style();
         component = LegacyComponentSerializer.legacySection().deserialize(text);
         component.style(component.style().merge(style, Strategy.IF_ABSENT_ON_TARGET));
 
         if (!children.isEmpty()) {
-          children.addFirst(component);
+          List<Component> wrappedChildren = new ArrayList<>(children.size() + 1);
+          wrappedChildren.add(component);
+          wrappedChildren.addAll(children);
 
           component = Component.text("");
-          component.setChildren(children);
+          component.setChildren(wrappedChildren);
         }
       }
     }
 
     return component;
   }
+
+  private List<Component> replaceLegacyContext(List<Component> components, NameMatcher matcher) {
+    List<Component> replaced = null;
+    for (int i = 0; i < components.size(); i++) {
+      Component component = components.get(i);
+      Component replacement = this.replaceLegacyContext(component, matcher);
+      if (replacement == component) {
+        continue;
+      }
+
+      // Copy the list only once the first entry was actually converted
+      if (replaced == null) {
+        replaced = new ArrayList<>(components);
+      }
+
+      replaced.set(i, replacement);
+    }
+
+    return replaced;
+  }
 }
@@ -18,10 +18,17 @@ package net.labymod.addons.customnametags;
 
 import java.util.HashMap;
 import java.util.Map;
+import net.labymod.addons.customnametags.cache.ChatMessageCache;
+import net.labymod.addons.customnametags.cache.DisplayNamePool;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.gui.activity.MetricsActivity;
 import net.labymod.addons.customnametags.gui.activity.NameTagActivity;
+import net.labymod.addons.customnametags.matcher.NamePatterns;
+import net.labymod.addons.customnametags.metrics.AddonMetrics;
 import net.labymod.api.addon.AddonConfig;
 import net.labymod.api.client.gui.screen.activity.Activity;
 import net.labymod.api.client.gui.screen.widget.widgets.activity.settings.AddonActivityWidget.AddonActivitySetting;
+import net.labymod.api.client.gui.screen.widget.widgets.input.SliderWidget.SliderSetting;
 import net.labymod.api.client.gui.screen.widget.widgets.input.SwitchWidget.SwitchSetting;
 import net.labymod.api.client.gui.screen.widget.widgets.input.color.ColorPickerWidget.ColorPickerSetting;
 import net.labymod.api.configuration.loader.annotation.ConfigName;
@@ -31,6 +38,7 @@ import net.labymod.api.configuration.settings.annotation.SettingRequires;
 import net.labymod.api.configuration.settings.annotation.SettingSection;
 import net.labymod.api.util.Color;
 import net.labymod.api.util.MethodOrder;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * The name tag configuration.
@@ -41,7 +49,7 @@ public final class CustomNameTagsConfiguration extends AddonConfig {
 
   @SwitchSetting
   private final ConfigProperty<Boolean> enabled = new ConfigProperty<>(true).addChangeListener(
-      (property, oldValue, newValue) -> CustomNameTags.get().reloadTabList()
+      (property, oldValue, newValue) -> CustomNameTags.get().updateContexts()
   );
 
   @SwitchSetting
@@ -50,6 +58,23 @@ public final class CustomNameTagsConfiguration extends AddonConfig {
           (property, oldValue, newValue) -> CustomNameTags.get().reloadTabList()
       );
 
+  @SettingSection("contexts")
+  @SwitchSetting
+  private final ConfigProperty<Boolean> chatContext = new ConfigProperty<>(true)
+      .addChangeListener((property, oldValue, newValue) -> CustomNameTags.get().updateContexts());
+
+  @SwitchSetting
+  private final ConfigProperty<Boolean> aboveHeadContext = new ConfigProperty<>(true)
+      .addChangeListener((property, oldValue, newValue) -> CustomNameTags.get().updateContexts());
+
+  @SwitchSetting
+  private final ConfigProperty<Boolean> tabListContext = new ConfigProperty<>(true)
+      .addChangeListener((property, oldValue, newValue) -> CustomNameTags.get().updateContexts());
+
+  @SwitchSetting
+  private final ConfigProperty<Boolean> scoreboardContext = new ConfigProperty<>(true)
+      .addChangeListener((property, oldValue, newValue) -> CustomNameTags.get().updateContexts());
+
   @SettingSection("background")
   @SwitchSetting
   private final ConfigProperty<Boolean> hideNameTagBackground = new ConfigProperty<>(false);
@@ -58,6 +83,32 @@ public final class CustomNameTagsConfiguration extends AddonConfig {
   @ColorPickerSetting(chroma = true, removeAlpha = false)
   private final ConfigProperty<Color> color = new ConfigProperty<>(Color.ofRGB(0, 0, 0, 192));
 
+  @SettingSection("performance")
+  @SliderSetting(min = 0, max = 1024, steps = 16)
+  private final ConfigProperty<Integer> chatCacheSize = new ConfigProperty<>(256)
+      .addChangeListener((property, oldValue, newValue) -> {
+        ChatMessageCache cache = CustomNameTags.get().chatMessageCache();
+        if (cache != null) {
+          cache.setMaximumSize(newValue);
+        }
+      });
+
+  @SwitchSetting
+  private final ConfigProperty<Boolean> shareDisplayNames = new ConfigProperty<>(false)
+      .addChangeListener((property, oldValue, newValue) -> {
+        DisplayNamePool.global().setShared(newValue);
+        CustomNameTags.get().reloadTabList();
+      });
+
+  @SwitchSetting
+  private final ConfigProperty<Boolean> collectMetrics = new ConfigProperty<>(false)
+      .addChangeListener((property, oldValue, newValue) -> {
+        AddonMetrics metrics = CustomNameTags.get().metrics();
+        if (metrics != null) {
+          metrics.setEnabled(newValue);
+        }
+      });
+
   @Exclude
   private Map<String, CustomNameTag> customTags = new HashMap<>();
 
@@ -70,6 +121,16 @@ public final class CustomNameTagsConfiguration extends AddonConfig {
     return this.checkForStringInTabList;
   }
 
+  public boolean isContextEnabled(@NotNull NameTagContext context) {
+    ConfigProperty<Boolean> property = switch (context) {
+      case CHAT -> this.chatContext;
+      case ABOVE_HEAD -> this.aboveHeadContext;
+      case TAB_LIST -> this.tabListContext;
+      case SCOREBOARD -> this.scoreboardContext;
+    };
+    return property.get();
+  }
+
   public ConfigProperty<Boolean> shouldHideNameTagBackground() {
     return this.hideNameTagBackground;
   }
@@ -78,19 +139,64 @@ public final class CustomNameTagsConfiguration extends AddonConfig {
     return this.color;
   }
 
+  public ConfigProperty<Integer> chatCacheSize() {
+    return this.chatCacheSize;
+  }
+
+  public ConfigProperty<Boolean> shareDisplayNames() {
+    return this.shareDisplayNames;
+  }
+
+  public ConfigProperty<Boolean> collectMetrics() {
+    return this.collectMetrics;
+  }
+
   public Map<String, CustomNameTag> getCustomTags() {
     return this.customTags;
   }
 
+  /**
+   * Replaces the custom tags stored in the configuration. The tags live in their own store, this
+   * is only used to clear them once they were migrated and as a fallback if the store is not
+   * available.
+   *
+   * @param customTags the new custom tags
+   */
+  public void setCustomTags(@NotNull Map<String, CustomNameTag> customTags) {
+    this.customTags = customTags;
+  }
+
   @MethodOrder(before = "checkForStringInTabList")
   @AddonActivitySetting
   public Activity openNameTags() {
     return new NameTagActivity();
   }
 
+  @MethodOrder(after = "collectMetrics")
+  @SettingRequires("collectMetrics")
+  @AddonActivitySetting
+  public Activity openMetrics() {
+    return new MetricsActivity();
+  }
+
   public void removeInvalidNameTags() {
     this.customTags.entrySet()
-        .removeIf(entry -> entry.getKey().isEmpty() || entry.getValue().getCustomName().isEmpty());
+        .removeIf(entry -> !isValidNameTag(entry.getKey(), entry.getValue()));
+  }
+
+  /**
+   * Checks whether a tag can be stored under the given name.
+   *
+   * @param originalName  the name the tag is stored under
+   * @param customNameTag the tag to check
+   * @return whether neither the name nor the custom name is empty and a pattern is valid
+   */
+  public static boolean isValidNameTag(
+      @NotNull String originalName,
+      @NotNull CustomNameTag customNameTag
+  ) {
+    return !originalName.isEmpty() && !customNameTag.getCustomName().isEmpty()
+        && (!customNameTag.isPattern() || NamePatterns.isValid(originalName));
   }
 
   @Override
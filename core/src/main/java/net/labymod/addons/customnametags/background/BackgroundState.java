@@ -0,0 +1,108 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.background;
+
+import net.labymod.api.client.entity.player.tag.event.NameTagBackgroundRenderEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Packs everything needed to render a name tag background into a single long, so a render only
+ * has to read one value. The lower 32 bits hold the ARGB color, the upper bits the flags.
+ */
+public final class BackgroundState {
+
+  public static final long HIDDEN = 1L << 32;
+  public static final long CHROMA = 1L << 33;
+  public static final long LIVE_COLOR = 1L << 34;
+  public static final long RESOLVED = 1L << 35;
+
+  private static final long CHROMA_CYCLE_MILLIS = 5000L;
+
+  private BackgroundState() {
+  }
+
+  public static long hidden() {
+    return RESOLVED | HIDDEN;
+  }
+
+  public static long color(int argb) {
+    return RESOLVED | (argb & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Creates a state whose hue cycles over time, keeping the alpha of the given color.
+   *
+   * @param argb the color to take the alpha from
+   * @return the packed state
+   */
+  public static long chroma(int argb) {
+    return RESOLVED | CHROMA | (argb & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Creates a state whose color is read on every render, for colors that are animated elsewhere.
+   *
+   * @return the packed state
+   */
+  public static long liveColor() {
+    return RESOLVED | LIVE_COLOR;
+  }
+
+  public static boolean isHidden(long state) {
+    return (state & HIDDEN) != 0;
+  }
+
+  public static boolean isLiveColor(long state) {
+    return (state & LIVE_COLOR) != 0;
+  }
+
+  /**
+   * Applies a state that is not {@link #isLiveColor(long) live} to the event.
+   *
+   * @param event the event to apply the state to
+   * @param state the packed state
+   */
+  public static void apply(@NotNull NameTagBackgroundRenderEvent event, long state) {
+    if ((state & HIDDEN) != 0) {
+      event.setCancelled(true);
+      return;
+    }
+
+    event.setCancelled(false);
+    int argb = (int) state;
+    if ((state & CHROMA) != 0) {
+      argb = (argb & 0xFF000000) | chromaRgb(System.currentTimeMillis());
+    }
+
+    event.setColor(argb);
+  }
+
+  private static int chromaRgb(long time) {
+    // Fully saturated and bright hue, so only the hue has to be converted
+    float hue = (time % CHROMA_CYCLE_MILLIS) / (float) CHROMA_CYCLE_MILLIS * 6.0F;
+    int sector = (int) hue;
+    int rising = (int) ((hue - sector) * 255.0F);
+    int falling = 255 - rising;
+    return switch (sector) {
+      case 0 -> 0xFF0000 | (rising << 8);
+      case 1 -> (falling << 16) | 0x00FF00;
+      case 2 -> 0x00FF00 | rising;
+      case 3 -> (falling << 8) | 0x0000FF;
+      case 4 -> (rising << 16) | 0x0000FF;
+      default -> 0xFF0000 | falling;
+    };
+  }
+}
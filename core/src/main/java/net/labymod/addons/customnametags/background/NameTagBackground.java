@@ -0,0 +1,129 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.background;
+
+import java.util.Locale;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The name tag background of a single custom name tag. Tags without one use the background of
+ * the configuration.
+ */
+public final class NameTagBackground {
+
+  private static final int DEFAULT_ALPHA = 0xC0000000;
+
+  private final Mode mode;
+  private final int color;
+
+  private transient long state;
+
+  private NameTagBackground(Mode mode, int color) {
+    this.mode = mode;
+    this.color = color;
+  }
+
+  public static @NotNull NameTagBackground hidden() {
+    return new NameTagBackground(Mode.HIDDEN, 0);
+  }
+
+  public static @NotNull NameTagBackground color(int argb) {
+    return new NameTagBackground(Mode.COLOR, argb);
+  }
+
+  public static @NotNull NameTagBackground chroma(int alpha) {
+    return new NameTagBackground(Mode.CHROMA, (alpha & 0xFF) << 24);
+  }
+
+  /**
+   * Parses a background as written by {@link #toString()}: {@code hidden}, {@code chroma},
+   * {@code chroma#AA} or {@code #AARRGGBB}, where a six digit color is opaque.
+   *
+   * @param value the text to parse
+   * @return the background or {@code null} if the text is empty or invalid
+   */
+  public static @Nullable NameTagBackground parse(@NotNull String value) {
+    String lowerCaseValue = value.trim().toLowerCase(Locale.ROOT);
+    if (lowerCaseValue.equals("hidden")) {
+      return hidden();
+    }
+
+    try {
+      if (lowerCaseValue.equals("chroma")) {
+        return new NameTagBackground(Mode.CHROMA, DEFAULT_ALPHA);
+      }
+
+      if (lowerCaseValue.startsWith("chroma#") && lowerCaseValue.length() == 9) {
+        return chroma(Integer.parseInt(lowerCaseValue.substring(7), 16));
+      }
+
+      if (lowerCaseValue.startsWith("#") && lowerCaseValue.length() == 7) {
+        return color(0xFF000000 | Integer.parseInt(lowerCaseValue.substring(1), 16));
+      }
+
+      if (lowerCaseValue.startsWith("#") && lowerCaseValue.length() == 9) {
+        return color((int) Long.parseLong(lowerCaseValue.substring(1), 16));
+      }
+    } catch (NumberFormatException exception) {
+      return null;
+    }
+
+    return null;
+  }
+
+  public @NotNull Mode getMode() {
+    return this.mode;
+  }
+
+  public int getColor() {
+    return this.color;
+  }
+
+  /**
+   * Returns the packed render state of this background. It is resolved once, backgrounds are
+   * immutable.
+   *
+   * @return the packed state
+   * @see BackgroundState
+   */
+  public long state() {
+    long state = this.state;
+    if (state == 0) {
+      state = switch (this.mode) {
+        case HIDDEN -> BackgroundState.hidden();
+        case COLOR -> BackgroundState.color(this.color);
+        case CHROMA -> BackgroundState.chroma(this.color);
+      };
+      this.state = state;
+    }
+
+    return state;
+  }
+
+  @Override
+  public String toString() {
+    return switch (this.mode) {
+      case HIDDEN -> "hidden";
+      case COLOR -> String.format(Locale.ROOT, "#%08X", this.color);
+      case CHROMA -> String.format(Locale.ROOT, "chroma#%02X", this.color >>> 24);
+    };
+  }
+
+  public enum Mode {
+    HIDDEN, COLOR, CHROMA
+  }
+}
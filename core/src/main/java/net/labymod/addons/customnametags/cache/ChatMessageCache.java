@@ -0,0 +1,134 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.labymod.api.client.component.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Remembers the rewritten components of recently received chat messages, so lines that servers
+ * broadcast over and over are only rewritten once. Entries are keyed by the formatted text of the
+ * message and only reused for the same snapshot version and the same incoming component, since
+ * the formatted text does not cover hover and click events.
+ */
+public final class ChatMessageCache {
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+  private int maximumSize;
+  private long hits;
+  private long misses;
+
+  public ChatMessageCache(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Returns a copy of the cached message if the same message was rewritten for the same version
+   * of the tags before.
+   *
+   * @param formattedText the formatted text of the received message
+   * @param version       the version of the snapshot the message is rewritten with
+   * @param fingerprint   the fingerprint of the received component
+   * @return a copy of the rewritten message or {@code null} if it has to be rewritten again
+   */
+  public synchronized @Nullable Component get(
+      @NotNull String formattedText,
+      long version,
+      long fingerprint
+  ) {
+    Entry entry = this.entries.get(formattedText);
+    if (entry == null || entry.version != version || entry.fingerprint != fingerprint) {
+      this.misses++;
+      return null;
+    }
+
+    this.hits++;
+    return entry.message.copy();
+  }
+
+  /**
+   * Stores the rewritten message. The cache keeps its own copy, so the stored component is not
+   * affected by anyone modifying the message afterwards.
+   *
+   * @param formattedText the formatted text of the received message
+   * @param version       the version of the snapshot the message was rewritten with
+   * @param fingerprint   the fingerprint of the received component
+   * @param message       the rewritten message
+   */
+  public synchronized void put(
+      @NotNull String formattedText,
+      long version,
+      long fingerprint,
+      @NotNull Component message
+  ) {
+    if (this.maximumSize <= 0) {
+      return;
+    }
+
+    this.entries.put(formattedText, new Entry(version, fingerprint, message.copy()));
+    this.trim();
+  }
+
+  public synchronized void setMaximumSize(int maximumSize) {
+    this.maximumSize = maximumSize;
+    this.trim();
+  }
+
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  public synchronized long hits() {
+    return this.hits;
+  }
+
+  public synchronized long misses() {
+    return this.misses;
+  }
+
+  public synchronized void invalidateAll() {
+    this.entries.clear();
+  }
+
+  private void trim() {
+    Iterator<Entry> iterator = this.entries.values().iterator();
+    int size = this.entries.size();
+    while (size > this.maximumSize && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+      size--;
+    }
+  }
+
+  private static final class Entry {
+
+    private final long version;
+    private final long fingerprint;
+    private final Component message;
+
+    private Entry(long version, long fingerprint, Component message) {
+      this.version = version;
+      this.fingerprint = fingerprint;
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.cache;
+
+import java.util.List;
+import java.util.Objects;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.component.TranslatableComponent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Computes a 64-bit structural hash of a component tree. Two trees with the same texts, styles
+ * and shape share a fingerprint, even if they are different instances.
+ */
+public final class ComponentFingerprint {
+
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  private ComponentFingerprint() {
+  }
+
+  public static long of(@NotNull Component component) {
+    return finish(hash(component, 1L));
+  }
+
+  private static long hash(Component component, long hash) {
+    if (component instanceof TextComponent textComponent) {
+      hash = mix(hash, 1);
+      hash = mix(hash, textComponent.getText().hashCode());
+    } else if (component instanceof TranslatableComponent translatableComponent) {
+      hash = mix(hash, 2);
+      hash = mix(hash, translatableComponent.getKey().hashCode());
+
+      // Indexed loops, iterators would allocate on every frame
+      List<Component> arguments = translatableComponent.getArguments();
+      hash = mix(hash, arguments.size());
+      for (int i = 0; i < arguments.size(); i++) {
+        hash = hash(arguments.get(i), hash);
+      }
+    } else {
+      hash = mix(hash, component.getClass().hashCode());
+    }
+
+    hash = mix(hash, Objects.hashCode(component.style()));
+
+    List<Component> children = component.getChildren();
+    hash = mix(hash, children.size());
+    for (int i = 0; i < children.size(); i++) {
+      hash = hash(children.get(i), hash);
+    }
+
+    return hash;
+  }
+
+  /**
+   * Compares two component trees by their texts, styles and shape, which is what the fingerprint is
+   * computed from. Used to confirm a cache hit, as different trees may share a fingerprint.
+   *
+   * @param first  the first tree
+   * @param second the second tree
+   * @return whether both trees have the same fingerprint for the same reason
+   */
+  public static boolean isSame(@NotNull Component first, @NotNull Component second) {
+    if (first == second) {
+      return true;
+    }
+
+    if (first.getClass() != second.getClass()
+        || !Objects.equals(first.style(), second.style())) {
+      return false;
+    }
+
+    if (first instanceof TextComponent textComponent) {
+      if (!textComponent.getText().equals(((TextComponent) second).getText())) {
+        return false;
+      }
+    } else if (first instanceof TranslatableComponent translatableComponent) {
+      TranslatableComponent otherComponent = (TranslatableComponent) second;
+      if (!translatableComponent.getKey().equals(otherComponent.getKey())
+          || !isSame(translatableComponent.getArguments(), otherComponent.getArguments())) {
+        return false;
+      }
+    }
+
+    return isSame(first.getChildren(), second.getChildren());
+  }
+
+  private static boolean isSame(List<Component> first, List<Component> second) {
+    if (first.size() != second.size()) {
+      return false;
+    }
+
+    for (int i = 0; i < first.size(); i++) {
+      if (!isSame(first.get(i), second.get(i))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static long mix(long hash, int value) {
+    return (hash ^ value) * MULTIPLIER;
+  }
+
+  private static long finish(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
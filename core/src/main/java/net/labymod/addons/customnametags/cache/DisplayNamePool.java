@@ -0,0 +1,110 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.format.Style;
+import net.labymod.api.client.component.format.Style.Merge.Strategy;
+import net.labymod.api.client.component.serializer.legacy.LegacyComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Interns the parsed display names of custom names. Tags with the same custom name share one
+ * parsed component, and the least recently used components are dropped, so tags that are never
+ * rendered do not keep a component alive.
+ *
+ * <p>By default every rendered display name is a deep copy of the interned component. In the
+ * shared mode the interned component is wrapped into a single new parent instead, which is much
+ * cheaper but requires that nobody modifies name tags or chat messages after this addon.
+ */
+public final class DisplayNamePool {
+
+  private static final int MAXIMUM_SIZE = 4096;
+  private static final DisplayNamePool GLOBAL = new DisplayNamePool(MAXIMUM_SIZE);
+
+  private final Map<String, Component> components;
+
+  private volatile boolean shared;
+
+  public DisplayNamePool(int maximumSize) {
+    this.components = new LinkedHashMap<>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+        return this.size() > maximumSize;
+      }
+    };
+  }
+
+  public static @NotNull DisplayNamePool global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Returns the interned display name of the custom name. The returned component is shared and
+   * must not be modified.
+   *
+   * @param customName the {@code &}-formatted custom name
+   * @return the parsed display name
+   */
+  public synchronized @NotNull Component intern(@NotNull String customName) {
+    Component component = this.components.get(customName);
+    if (component == null) {
+      component = LegacyComponentSerializer.legacyAmpersand().deserialize(customName);
+      this.components.put(customName, component);
+    }
+
+    return component;
+  }
+
+  /**
+   * Creates a display name that can be inserted into a component tree. Its own style takes
+   * precedence over the given style.
+   *
+   * @param customName the {@code &}-formatted custom name
+   * @param style      the style of the text the name replaces or {@code null} if there is none
+   * @return the display name to insert
+   */
+  public @NotNull Component instantiate(@NotNull String customName, @Nullable Style style) {
+    Component displayName = this.intern(customName);
+    if (this.shared) {
+      // Unset style properties of the child are inherited from the wrapper when rendering
+      Component wrapper = style == null ? Component.empty() : Component.text("", style);
+      return wrapper.append(displayName);
+    }
+
+    Component copy = displayName.copy();
+    if (style != null) {
+      copy.style(copy.style().merge(style, Strategy.IF_ABSENT_ON_TARGET));
+    }
+
+    return copy;
+  }
+
+  public boolean isShared() {
+    return this.shared;
+  }
+
+  public void setShared(boolean shared) {
+    this.shared = shared;
+  }
+
+  public synchronized int size() {
+    return this.components.size();
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import net.labymod.api.client.gui.icon.Icon;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Shares the head icons of players between the overview and the editor. An icon resolves its
+ * texture once, so reusing it avoids fetching the same head again whenever a row is rebuilt.
+ */
+public final class HeadIconCache {
+
+  private static final String UNKNOWN_HEAD = "MHF_Question";
+
+  private final Map<String, Icon> icons;
+
+  public HeadIconCache(int maximumIcons) {
+    this.icons = new LinkedHashMap<>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Icon> eldest) {
+        return this.size() > maximumIcons;
+      }
+    };
+  }
+
+  /**
+   * Returns the head icon of the player, a question mark if the name is blank.
+   *
+   * @param userName the name of the player, ignoring its case
+   * @return the head icon
+   */
+  public synchronized @NotNull Icon head(@NotNull String userName) {
+    String name = userName.isBlank() ? UNKNOWN_HEAD : userName.trim();
+    return this.icons.computeIfAbsent(name.toLowerCase(Locale.ROOT), ignored -> Icon.head(name));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.event.client.render.PlayerNameTagRenderEvent.Context;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Remembers the rewritten name tag of every player per render context. An entry is only reused
+ * while the incoming name tag is the same and the tag was not edited since. The fingerprint only
+ * rejects most changed name tags cheaply, a hit is verified against a copy of the incoming one.
+ */
+public final class NameTagRenderCache {
+
+  private static final Context[] CONTEXTS = Context.values();
+
+  private final Map<UUID, Entry[]> entries;
+
+  public NameTagRenderCache(int maximumPlayers) {
+    this.entries = new LinkedHashMap<>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<UUID, Entry[]> eldest) {
+        return this.size() > maximumPlayers;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached name tag of the player if it was rendered from the same input with the same
+   * state of the tag.
+   *
+   * @param uniqueId      the unique id of the player
+   * @param context       the context the name tag is rendered in
+   * @param line          the incoming name tag
+   * @param fingerprint   the fingerprint of the incoming name tag
+   * @param customNameTag the tag that is applied to the player
+   * @return the cached name tag or {@code null} if it has to be rendered again
+   */
+  public @Nullable Component get(
+      @NotNull UUID uniqueId,
+      @NotNull Context context,
+      @NotNull Component line,
+      long fingerprint,
+      @NotNull CustomNameTag customNameTag
+  ) {
+    Entry[] playerEntries = this.entries.get(uniqueId);
+    if (playerEntries == null) {
+      return null;
+    }
+
+    Entry entry = playerEntries[context.ordinal()];
+    if (entry == null
+        || entry.fingerprint != fingerprint
+        || entry.customNameTag != customNameTag
+        || entry.version != customNameTag.getVersion()
+        || !ComponentFingerprint.isSame(entry.line, line)) {
+      return null;
+    }
+
+    return entry.nameTag;
+  }
+
+  public void put(
+      @NotNull UUID uniqueId,
+      @NotNull Context context,
+      @NotNull Component line,
+      long fingerprint,
+      @NotNull CustomNameTag customNameTag,
+      @NotNull Component nameTag
+  ) {
+    Entry[] playerEntries = this.entries.computeIfAbsent(
+        uniqueId,
+        ignored -> new Entry[CONTEXTS.length]
+    );
+
+    Entry entry = playerEntries[context.ordinal()];
+    if (entry == null) {
+      entry = new Entry();
+      playerEntries[context.ordinal()] = entry;
+    }
+
+    entry.line = line.copy(); // The incoming name tag may be modified after rendering
+    entry.fingerprint = fingerprint;
+    entry.customNameTag = customNameTag;
+    entry.version = customNameTag.getVersion();
+    entry.nameTag = nameTag;
+  }
+
+  public void invalidate(@NotNull UUID uniqueId) {
+    this.entries.remove(uniqueId);
+  }
+
+  public void invalidateAll() {
+    this.entries.clear();
+  }
+
+  private static final class Entry {
+
+    private Component line;
+    private long fingerprint;
+    private CustomNameTag customNameTag;
+    private int version;
+    private Component nameTag;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.cache;
+
+import java.util.Arrays;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.api.client.component.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Remembers rewritten lines of players in scoreboard teams. Team prefixes and suffixes repeat the
+ * same names on every frame, so a line is only rewritten again once its text changed or the
+ * registry published a new snapshot.
+ *
+ * <p>The lines live in one table of primitive arrays with a few slots per bucket, so a lookup
+ * allocates nothing and large teams do not evict each other. A fingerprint only selects the
+ * candidates, a hit also requires the same team, player name, tag and line tree.
+ */
+public final class TeamLineCache {
+
+  private static final int WAYS = 4;
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  private final int bucketMask;
+  private final long[] fingerprints;
+  private final long[] versions;
+  private final long[] lastUses;
+  private final int[] tagVersions;
+  private final String[] teams;
+  private final String[] playerNames;
+  private final CustomNameTag[] customNameTags;
+  private final Component[] lines;
+  private final Component[] rewrittenLines;
+
+  private long clock;
+
+  public TeamLineCache(int maximumLines) {
+    int buckets = Integer.highestOneBit(Math.max(1, maximumLines / WAYS));
+    int slots = buckets * WAYS;
+    this.bucketMask = buckets - 1;
+    this.fingerprints = new long[slots];
+    this.versions = new long[slots];
+    this.lastUses = new long[slots];
+    this.tagVersions = new int[slots];
+    this.teams = new String[slots];
+    this.playerNames = new String[slots];
+    this.customNameTags = new CustomNameTag[slots];
+    this.lines = new Component[slots];
+    this.rewrittenLines = new Component[slots];
+  }
+
+  /**
+   * Returns the rewritten line if the same line of the player was rewritten with the same tag and
+   * snapshot.
+   *
+   * @param team          the name of the team
+   * @param playerName    the name of the player the line belongs to
+   * @param customNameTag the tag that is applied to the player
+   * @param line          the incoming line
+   * @param fingerprint   the fingerprint of the incoming line
+   * @param version       the version of the snapshot the line is rewritten with
+   * @return the rewritten line or {@code null} if it has to be rewritten again
+   * @see ComponentFingerprint
+   */
+  public @Nullable Component get(
+      @NotNull String team,
+      @NotNull String playerName,
+      @NotNull CustomNameTag customNameTag,
+      @NotNull Component line,
+      long fingerprint,
+      long version
+  ) {
+    int slot = this.find(team, playerName, line, fingerprint);
+    if (slot == -1
+        || this.versions[slot] != version
+        || this.customNameTags[slot] != customNameTag
+        || this.tagVersions[slot] != customNameTag.getVersion()) {
+      return null;
+    }
+
+    this.lastUses[slot] = ++this.clock;
+    return this.rewrittenLines[slot];
+  }
+
+  public void put(
+      @NotNull String team,
+      @NotNull String playerName,
+      @NotNull CustomNameTag customNameTag,
+      @NotNull Component line,
+      long fingerprint,
+      long version,
+      @NotNull Component rewrittenLine
+  ) {
+    int slot = this.find(team, playerName, line, fingerprint);
+    if (slot == -1) {
+      slot = this.evict(fingerprint);
+      this.fingerprints[slot] = fingerprint;
+      this.teams[slot] = team;
+      this.playerNames[slot] = playerName;
+      this.lines[slot] = line.copy(); // The caller may reuse the incoming line
+    }
+
+    this.versions[slot] = version;
+    this.customNameTags[slot] = customNameTag;
+    this.tagVersions[slot] = customNameTag.getVersion();
+    this.rewrittenLines[slot] = rewrittenLine;
+    this.lastUses[slot] = ++this.clock;
+  }
+
+  public void invalidateAll() {
+    Arrays.fill(this.teams, null);
+    Arrays.fill(this.playerNames, null);
+    Arrays.fill(this.customNameTags, null);
+    Arrays.fill(this.lines, null);
+    Arrays.fill(this.rewrittenLines, null);
+  }
+
+  private int find(String team, String playerName, Component line, long fingerprint) {
+    int start = this.bucket(fingerprint);
+    for (int slot = start; slot < start + WAYS; slot++) {
+      if (this.lines[slot] != null
+          && this.fingerprints[slot] == fingerprint
+          && this.teams[slot].equals(team)
+          && this.playerNames[slot].equals(playerName)
+          && ComponentFingerprint.isSame(this.lines[slot], line)) {
+        return slot;
+      }
+    }
+
+    return -1;
+  }
+
+  private int evict(long fingerprint) {
+    int start = this.bucket(fingerprint);
+    int eldest = start;
+    for (int slot = start; slot < start + WAYS; slot++) {
+      if (this.lines[slot] == null) {
+        return slot;
+      }
+
+      if (this.lastUses[slot] < this.lastUses[eldest]) {
+        eldest = slot;
+      }
+    }
+
+    return eldest;
+  }
+
+  private int bucket(long fingerprint) {
+    return (int) ((fingerprint * MULTIPLIER) >>> 40 & this.bucketMask) * WAYS;
+  }
+}
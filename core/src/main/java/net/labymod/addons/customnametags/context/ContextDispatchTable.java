@@ -0,0 +1,124 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.context;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.CustomNameTagsConfiguration;
+import net.labymod.addons.customnametags.registry.NameTagSnapshot;
+import net.labymod.api.event.EventBus;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Compiles the global and per tag context switches into one bit mask of the contexts that have to
+ * be handled. Listeners are bound to the contexts they handle and are only subscribed while at
+ * least one of them is active, so a context without any enabled tag costs nothing.
+ */
+public final class ContextDispatchTable {
+
+  private final EventBus eventBus;
+  private final List<Binding> bindings = new ArrayList<>();
+
+  private volatile int activeContexts;
+
+  public ContextDispatchTable(@NotNull EventBus eventBus) {
+    this.eventBus = eventBus;
+  }
+
+  /**
+   * Binds a listener to the contexts it handles. The listener is subscribed by the next
+   * {@link #update(CustomNameTagsConfiguration, NameTagSnapshot)} if one of them is active.
+   *
+   * @param listener the listener to subscribe and unsubscribe
+   * @param contexts the contexts the listener handles
+   */
+  public synchronized void bind(@NotNull Object listener, @NotNull NameTagContext... contexts) {
+    int mask = 0;
+    for (NameTagContext context : contexts) {
+      mask |= context.mask();
+    }
+
+    this.bindings.add(new Binding(listener, mask));
+  }
+
+  /**
+   * Recompiles the active contexts and subscribes or unsubscribes the bound listeners accordingly.
+   *
+   * @param configuration the configuration with the global switches
+   * @param snapshot      the tags with their own switches
+   * @return whether the active contexts changed
+   */
+  public synchronized boolean update(
+      @NotNull CustomNameTagsConfiguration configuration,
+      @NotNull NameTagSnapshot snapshot
+  ) {
+    int activeContexts = 0;
+    if (configuration.enabled().get()) {
+      int usedContexts = 0;
+      for (CustomNameTag customNameTag : snapshot.values()) {
+        if (customNameTag.isEnabled()) {
+          usedContexts |= customNameTag.getEnabledContexts();
+          if (usedContexts == NameTagContext.ALL) {
+            break;
+          }
+        }
+      }
+
+      for (NameTagContext context : NameTagContext.values()) {
+        if ((usedContexts & context.mask()) != 0 && configuration.isContextEnabled(context)) {
+          activeContexts |= context.mask();
+        }
+      }
+    }
+
+    for (Binding binding : this.bindings) {
+      boolean active = (activeContexts & binding.contexts) != 0;
+      if (active == binding.subscribed) {
+        continue;
+      }
+
+      if (active) {
+        this.eventBus.registerListener(binding.listener);
+      } else {
+        this.eventBus.unregisterListener(binding.listener);
+      }
+
+      binding.subscribed = active;
+    }
+
+    boolean changed = this.activeContexts != activeContexts;
+    this.activeContexts = activeContexts;
+    return changed;
+  }
+
+  public boolean isActive(@NotNull NameTagContext context) {
+    return (this.activeContexts & context.mask()) != 0;
+  }
+
+  private static final class Binding {
+
+    private final Object listener;
+    private final int contexts;
+    private boolean subscribed;
+
+    private Binding(Object listener, int contexts) {
+      this.listener = listener;
+      this.contexts = contexts;
+    }
+  }
+}
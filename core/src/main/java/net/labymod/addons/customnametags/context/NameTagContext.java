@@ -0,0 +1,40 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.context;
+
+/**
+ * The places a custom name tag can be shown in. Each context can be switched off globally and per
+ * tag.
+ */
+public enum NameTagContext {
+
+  CHAT,
+  ABOVE_HEAD,
+  TAB_LIST,
+  /**
+   * Replacing the prefix and suffix of the scoreboard team together with the name.
+   */
+  SCOREBOARD;
+
+  public static final int ALL = (1 << values().length) - 1;
+
+  private final int mask = 1 << this.ordinal();
+
+  public int mask() {
+    return this.mask;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.gui;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import net.labymod.api.Laby;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Delays an action until no new action was submitted for a while, so only the last of a quick
+ * series of changes is handled. Actions run on the render thread.
+ */
+public final class Debouncer {
+
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CustomNameTags Debouncer");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final long delayMillis;
+
+  private ScheduledFuture<?> pending;
+
+  public Debouncer(long delayMillis) {
+    this.delayMillis = delayMillis;
+  }
+
+  /**
+   * Schedules the action and cancels the previously submitted one if it did not run yet.
+   *
+   * @param action the action to run on the render thread
+   */
+  public synchronized void submit(@NotNull Runnable action) {
+    if (this.pending != null) {
+      this.pending.cancel(false);
+    }
+
+    this.pending = SCHEDULER.schedule(
+        () -> Laby.labyAPI().minecraft().executeOnRenderThread(action),
+        this.delayMillis,
+        TimeUnit.MILLISECONDS
+    );
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.gui.activity;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import net.labymod.addons.customnametags.CustomNameTags;
+import net.labymod.addons.customnametags.cache.ChatMessageCache;
+import net.labymod.api.Constants.Files;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.gui.screen.Parent;
+import net.labymod.api.client.gui.screen.activity.Activity;
+import net.labymod.api.client.gui.screen.activity.AutoActivity;
+import net.labymod.api.client.gui.screen.activity.Link;
+import net.labymod.api.client.gui.screen.widget.widgets.ComponentWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.input.ButtonWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.layout.FlexibleContentWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.layout.ScrollWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.layout.list.HorizontalListWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.layout.list.VerticalListWidget;
+
+@AutoActivity
+@Link("metrics.lss")
+public class MetricsActivity extends Activity {
+
+  private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern(
+      "yyyy-MM-dd_HH-mm-ss",
+      Locale.ROOT
+  );
+
+  private final CustomNameTags addon;
+
+  private Component status;
+
+  public MetricsActivity() {
+    this.addon = CustomNameTags.get();
+  }
+
+  @Override
+  public void initialize(Parent parent) {
+    super.initialize(parent);
+
+    FlexibleContentWidget container = new FlexibleContentWidget();
+    container.addId("metrics-container");
+
+    VerticalListWidget<ComponentWidget> metricList = new VerticalListWidget<>();
+    metricList.addId("metric-list");
+    for (String line : this.addon.metrics().report()) {
+      metricList.addChild(this.lineWidget(Component.text(line)));
+    }
+
+    ChatMessageCache chatMessageCache = this.addon.chatMessageCache();
+    metricList.addChild(this.lineWidget(Component.text(String.format(
+        Locale.ROOT,
+        "Chat cache: %d hits, %d misses, %d entries",
+        chatMessageCache.hits(),
+        chatMessageCache.misses(),
+        chatMessageCache.size()
+    ))));
+
+    if (this.status != null) {
+      metricList.addChild(this.lineWidget(this.status));
+    }
+
+    container.addFlexibleContent(new ScrollWidget(metricList));
+
+    HorizontalListWidget menu = new HorizontalListWidget();
+    menu.addId("metrics-button-menu");
+    menu.addEntry(ButtonWidget.i18n("customnametags.gui.metrics.refresh", this::reload));
+    menu.addEntry(ButtonWidget.i18n("customnametags.gui.metrics.reset", () -> {
+      this.addon.metrics().reset();
+      this.status = null;
+      this.reload();
+    }));
+    menu.addEntry(ButtonWidget.i18n("customnametags.gui.metrics.dump", () -> {
+      this.dump();
+      this.reload();
+    }));
+
+    container.addContent(menu);
+    this.document().addChild(container);
+  }
+
+  private ComponentWidget lineWidget(Component component) {
+    ComponentWidget widget = ComponentWidget.component(component);
+    widget.addId("metric");
+    return widget;
+  }
+
+  private void dump() {
+    Path path = Files.CONFIGS.resolve("customnametags")
+        .resolve("metrics-" + LocalDateTime.now().format(FILE_TIME) + ".txt");
+    try {
+      this.addon.metrics().dump(path);
+      this.status = Component.translatable(
+          "customnametags.gui.metrics.dumped",
+          Component.text(path.toAbsolutePath().toString())
+      );
+    } catch (IOException exception) {
+      this.addon.logger().error("Could not write the metrics to " + path, exception);
+      this.status = Component.translatable("customnametags.gui.metrics.failed");
+    }
+  }
+}
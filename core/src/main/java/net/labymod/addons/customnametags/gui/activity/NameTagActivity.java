@@ -16,12 +16,15 @@
 
 package net.labymod.addons.customnametags.gui.activity;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import net.labymod.addons.customnametags.CustomNameTag;
 import net.labymod.addons.customnametags.CustomNameTags;
+import net.labymod.addons.customnametags.gui.Debouncer;
 import net.labymod.addons.customnametags.gui.popup.EditNameTagPopup;
-import net.labymod.api.Laby;
+import net.labymod.addons.customnametags.gui.popup.TransferNameTagsPopup;
+import net.labymod.addons.customnametags.gui.popup.TransferNameTagsPopup.Mode;
+import net.labymod.addons.customnametags.registry.NameTagSnapshot;
 import net.labymod.api.client.component.Component;
 import net.labymod.api.client.gui.mouse.MutableMouse;
 import net.labymod.api.client.gui.screen.Parent;
@@ -29,14 +32,15 @@ import net.labymod.api.client.gui.screen.activity.Activity;
 import net.labymod.api.client.gui.screen.activity.AutoActivity;
 import net.labymod.api.client.gui.screen.activity.Link;
 import net.labymod.api.client.gui.screen.key.MouseButton;
+import net.labymod.api.client.gui.screen.widget.widgets.ComponentWidget;
 import net.labymod.api.client.gui.screen.widget.widgets.input.ButtonWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.input.TextFieldWidget;
 import net.labymod.api.client.gui.screen.widget.widgets.layout.FlexibleContentWidget;
 import net.labymod.api.client.gui.screen.widget.widgets.layout.ScrollWidget;
 import net.labymod.api.client.gui.screen.widget.widgets.layout.list.HorizontalListWidget;
 import net.labymod.api.client.gui.screen.widget.widgets.layout.list.VerticalListWidget;
 import net.labymod.api.client.gui.screen.widget.widgets.popup.SimpleAdvancedPopup;
 import net.labymod.api.client.gui.screen.widget.widgets.popup.SimpleAdvancedPopup.SimplePopupButton;
-import net.labymod.api.event.client.gui.screen.playerlist.PlayerListUpdateEvent;
 import org.jetbrains.annotations.NotNull;
 
 @AutoActivity
@@ -44,21 +48,29 @@ import org.jetbrains.annotations.NotNull;
 @Link("overview.lss")
 public class NameTagActivity extends Activity {
 
+  private static final int PAGE_SIZE = 50;
+  private static final long SEARCH_DEBOUNCE_MILLIS = 250;
+
   private final CustomNameTags addon;
   private final VerticalListWidget<NameTagWidget> nameTagList;
-  private final Map<String, NameTagWidget> nameTagWidgets;
+  private final Debouncer searchDebouncer = new Debouncer(SEARCH_DEBOUNCE_MILLIS);
+
+  private List<CustomNameTag> results;
+  private long resultsVersion = -1;
+  private String query = "";
+  private int page;
 
   private CustomNameTag selectedNameTag;
 
   private ButtonWidget removeButton;
   private ButtonWidget editButton;
+  private ButtonWidget previousPageButton;
+  private ButtonWidget nextPageButton;
+  private ComponentWidget pageWidget;
 
   public NameTagActivity() {
     this.addon = CustomNameTags.get();
 
-    this.nameTagWidgets = new HashMap<>();
-    this.loadNameTags();
-
     this.nameTagList = new VerticalListWidget<>();
     this.nameTagList.addId("name-tag-list");
     this.nameTagList.setSelectCallback(nameTagWidget -> {
@@ -79,17 +91,32 @@ public class NameTagActivity extends Activity {
 
     FlexibleContentWidget container = new FlexibleContentWidget();
     container.addId("name-tag-container");
-    for (NameTagWidget nameTagWidget : this.nameTagWidgets.values()) {
-      this.nameTagList.addChild(nameTagWidget);
-    }
+
+    TextFieldWidget searchInput = new TextFieldWidget();
+    searchInput.addId("search-input");
+    searchInput.placeholder(Component.translatable("customnametags.gui.manage.search"));
+    searchInput.setText(this.query);
+    searchInput.updateListener(newValue -> this.searchDebouncer.submit(() -> {
+      this.query = newValue;
+      this.page = 0;
+      this.resultsVersion = -1;
+      this.updateRows();
+    }));
+    container.addContent(searchInput);
 
     container.addFlexibleContent(new ScrollWidget(this.nameTagList));
-    NameTagWidget selectedEntry = this.nameTagList.listSession().getSelectedEntry();
-    if (selectedEntry != null) {
-      this.selectedNameTag = selectedEntry.getCustomTag();
-    } else {
-      this.selectedNameTag = null;
-    }
+
+    HorizontalListWidget pageMenu = new HorizontalListWidget();
+    pageMenu.addId("page-menu");
+    this.previousPageButton = ButtonWidget.text("<", () -> this.changePage(-1));
+    pageMenu.addEntry(this.previousPageButton);
+    this.pageWidget = ComponentWidget.text("");
+    this.pageWidget.addId("page-number");
+    pageMenu.addEntry(this.pageWidget);
+    this.nextPageButton = ButtonWidget.text(">", () -> this.changePage(1));
+    pageMenu.addEntry(this.nextPageButton);
+    container.addContent(pageMenu);
+
     HorizontalListWidget menu = new HorizontalListWidget();
     menu.addId("overview-button-menu");
 
@@ -97,16 +124,24 @@ public class NameTagActivity extends Activity {
 
     this.editButton = ButtonWidget.i18n("labymod.ui.button.edit",
         () -> this.performAction(Action.EDIT));
-    this.editButton.setEnabled(this.selectedNameTag != null);
     menu.addEntry(this.editButton);
 
     this.removeButton = ButtonWidget.i18n("labymod.ui.button.remove",
         () -> this.performAction(Action.REMOVE));
-    this.removeButton.setEnabled(this.selectedNameTag != null);
     menu.addEntry(this.removeButton);
 
+    HorizontalListWidget transferMenu = new HorizontalListWidget();
+    transferMenu.addId("overview-button-menu", "transfer-button-menu");
+    transferMenu.addEntry(ButtonWidget.i18n("customnametags.gui.transfer.import.name",
+        () -> this.performAction(Action.IMPORT)));
+    transferMenu.addEntry(ButtonWidget.i18n("customnametags.gui.transfer.export.name",
+        () -> this.performAction(Action.EXPORT)));
+
+    container.addContent(transferMenu);
     container.addContent(menu);
     this.document().addChild(container);
+
+    this.updateRows();
   }
 
   @Override
@@ -114,62 +149,155 @@ public class NameTagActivity extends Activity {
     try {
       return super.mouseClicked(mouse, mouseButton);
     } finally {
-      NameTagWidget selectedEntry = this.nameTagList.listSession().getSelectedEntry();
-      if (selectedEntry != null) {
-        this.selectedNameTag = selectedEntry.getCustomTag();
-      } else {
-        this.selectedNameTag = null;
-      }
-      this.removeButton.setEnabled(this.selectedNameTag != null);
-      this.editButton.setEnabled(this.selectedNameTag != null);
+      this.updateSelection();
     }
   }
 
   @Override
   public void reload() {
-    this.loadNameTags();
+    this.resultsVersion = -1;
     super.reload();
   }
 
-  private void loadNameTags() {
-    this.nameTagWidgets.clear();
-    this.addon.configuration().getCustomTags().forEach((userName, customTag) -> {
-      this.nameTagWidgets.put(userName, new NameTagWidget(customTag));
-    });
+  /**
+   * Shows the rows of the current page. Only the rows of this page have widgets, so the cost does
+   * not grow with the number of tags.
+   */
+  private void updateRows() {
+    NameTagSnapshot snapshot = this.addon.registry().snapshot();
+    if (this.resultsVersion != snapshot.version()) {
+      this.results = snapshot.searchIndex().search(this.query);
+      this.resultsVersion = snapshot.version();
+    }
+
+    int pages = Math.max(1, (this.results.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+    this.page = Math.min(this.page, pages - 1);
+
+    for (NameTagWidget nameTagWidget : new ArrayList<>(this.nameTagList.getChildren())) {
+      this.nameTagList.removeChild(nameTagWidget);
+    }
+
+    int end = Math.min(this.results.size(), (this.page + 1) * PAGE_SIZE);
+    for (int i = this.page * PAGE_SIZE; i < end; i++) {
+      this.nameTagList.addChildInitialized(new NameTagWidget(this.results.get(i)));
+    }
+
+    this.pageWidget.setComponent(Component.translatable(
+        "customnametags.gui.manage.page",
+        Component.text(String.valueOf(this.page + 1)),
+        Component.text(String.valueOf(pages)),
+        Component.text(String.valueOf(this.results.size()))
+    ));
+    this.previousPageButton.setEnabled(this.page > 0);
+    this.nextPageButton.setEnabled(this.page < pages - 1);
+    this.updateSelection();
+  }
+
+  private void changePage(int offset) {
+    this.page = Math.max(0, this.page + offset);
+    this.updateRows();
+  }
+
+  private void updateSelection() {
+    NameTagWidget selectedEntry = this.nameTagList.listSession().getSelectedEntry();
+    if (selectedEntry != null && this.nameTagList.getChildren().contains(selectedEntry)) {
+      this.selectedNameTag = selectedEntry.getCustomTag();
+    } else {
+      this.selectedNameTag = null;
+    }
+
+    this.removeButton.setEnabled(this.selectedNameTag != null);
+    this.editButton.setEnabled(this.selectedNameTag != null);
+  }
+
+  /**
+   * Updates the row of a single edited tag in place instead of rebuilding the page.
+   *
+   * @param previousNameTag the tag that was edited
+   * @param editedNameTag   the tag it was replaced with
+   */
+  private void updateRow(CustomNameTag previousNameTag, CustomNameTag editedNameTag) {
+    for (NameTagWidget nameTagWidget : this.nameTagList.getChildren()) {
+      if (nameTagWidget.getCustomTag() == previousNameTag) {
+        nameTagWidget.setCustomTag(editedNameTag);
+        nameTagWidget.reInitialize();
+        break;
+      }
+    }
+
+    // The row stays where it is, the results are only sorted again when the page changes
+    int index = this.results.indexOf(previousNameTag);
+    if (index != -1) {
+      this.results = new ArrayList<>(this.results);
+      this.results.set(index, editedNameTag);
+      this.resultsVersion = this.addon.registry().snapshot().version();
+    }
+
+    this.selectedNameTag = editedNameTag;
+  }
+
+  private void removeRow(CustomNameTag removedNameTag) {
+    for (NameTagWidget nameTagWidget : this.nameTagList.getChildren()) {
+      if (nameTagWidget.getCustomTag() == removedNameTag) {
+        this.nameTagList.removeChild(nameTagWidget);
+        break;
+      }
+    }
+
+    this.results = new ArrayList<>(this.results);
+    this.results.remove(removedNameTag);
+    this.resultsVersion = this.addon.registry().snapshot().version();
+    this.updateSelection();
   }
 
   private void performAction(@NotNull Action action) {
     switch (action) {
       case ADD -> {
-        new EditNameTagPopup(CustomNameTag.ofDefault(), this.addon.configuration(), customNameTag -> {
+        new EditNameTagPopup(CustomNameTag.ofDefault(), this.addon.registry(), customNameTag -> {
           this.selectedNameTag = customNameTag;
-          this.reload();
+          this.updateRows();
         });
       }
       case EDIT -> {
+        CustomNameTag previousNameTag = this.selectedNameTag;
+        if (previousNameTag == null) {
+          return;
+        }
+
         new EditNameTagPopup(
-            this.nameTagList.listSession().getSelectedEntry().getCustomTag(),
-            this.addon.configuration(),
-            ignored -> this.reload()
+            previousNameTag,
+            this.addon.registry(),
+            editedNameTag -> this.updateRow(previousNameTag, editedNameTag)
         );
       }
       case REMOVE -> {
+        CustomNameTag removedNameTag = this.selectedNameTag;
+        if (removedNameTag == null) {
+          return;
+        }
+
         SimpleAdvancedPopup.builder()
             .title(Component.translatable("customnametags.gui.manage.remove.title"))
-            .description(Component.translatable("customnametags.gui.manage.remove.description").argument(Component.text(this.selectedNameTag.getOriginalName())))
+            .description(Component.translatable("customnametags.gui.manage.remove.description").argument(Component.text(removedNameTag.getOriginalName())))
             .addButton(SimplePopupButton.confirm(simplePopupButton -> {
-              this.addon.configuration().getCustomTags().remove(this.selectedNameTag.getOriginalName());
-              this.reload();
-              Laby.fireEvent(new PlayerListUpdateEvent()); //Make sure the changes are displayed immediately
+              String originalName = removedNameTag.getOriginalName();
+              this.addon.registry().edit(editor -> editor.remove(originalName));
+              this.removeRow(removedNameTag); //The registry refreshes the player list if the player is online
             }))
             .addButton(SimplePopupButton.cancel())
             .build()
             .displayInOverlay();
       }
+      case IMPORT -> {
+        new TransferNameTagsPopup(Mode.IMPORT, this.addon.registry(), this::updateRows);
+      }
+      case EXPORT -> {
+        new TransferNameTagsPopup(Mode.EXPORT, this.addon.registry(), this::updateRows);
+      }
     }
   }
 
   private enum Action {
-    ADD, EDIT, REMOVE
+    ADD, EDIT, REMOVE, IMPORT, EXPORT
   }
 }
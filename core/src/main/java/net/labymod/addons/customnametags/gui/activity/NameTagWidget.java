@@ -17,6 +17,7 @@
 package net.labymod.addons.customnametags.gui.activity;
 
 import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.CustomNameTags;
 import net.labymod.api.client.component.Component;
 import net.labymod.api.client.gui.icon.Icon;
 import net.labymod.api.client.gui.lss.property.annotation.AutoWidget;
@@ -57,7 +58,7 @@ public class NameTagWidget extends SimpleWidget {
   }
 
   public Icon getIconWidget(String userName) {
-    return Icon.head(userName.isBlank() ? "MHF_Question" : userName);
+    return CustomNameTags.get().headIconCache().head(userName);
   }
 
   public String getUserName() {
@@ -1,8 +1,13 @@
 package net.labymod.addons.customnametags.gui.popup;
 
 import net.labymod.addons.customnametags.CustomNameTag;
-import net.labymod.addons.customnametags.CustomNameTagsConfiguration;
-import net.labymod.api.Laby;
+import net.labymod.addons.customnametags.CustomNameTags;
+import net.labymod.addons.customnametags.background.NameTagBackground;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.gui.Debouncer;
+import net.labymod.addons.customnametags.matcher.NamePatterns;
+import net.labymod.addons.customnametags.registry.NameTagRegistry;
+import net.labymod.addons.customnametags.registry.NameTagSnapshot;
 import net.labymod.api.client.component.Component;
 import net.labymod.api.client.component.serializer.legacy.LegacyComponentSerializer;
 import net.labymod.api.client.gui.icon.Icon;
@@ -17,23 +22,35 @@ import net.labymod.api.client.gui.screen.widget.widgets.layout.FlexibleContentWi
 import net.labymod.api.client.gui.screen.widget.widgets.layout.list.HorizontalListWidget;
 import net.labymod.api.client.gui.screen.widget.widgets.popup.SimpleAdvancedPopup;
 import net.labymod.api.client.gui.screen.widget.widgets.renderer.IconWidget;
-import net.labymod.api.event.client.gui.screen.playerlist.PlayerListUpdateEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 @Link("manage.lss")
 public class EditNameTagPopup extends SimpleAdvancedPopup {
 
+  private static final long INPUT_DEBOUNCE_MILLIS = 250;
+
   private final SimplePopupButton confirmButton;
+  private final Debouncer headDebouncer = new Debouncer(INPUT_DEBOUNCE_MILLIS);
+  private final Debouncer previewDebouncer = new Debouncer(INPUT_DEBOUNCE_MILLIS);
 
   private TextFieldWidget mcNameInput;
   private TextFieldWidget customNameInput;
+  private TextFieldWidget backgroundInput;
   private CheckBoxWidget enabledCheckBox;
   private CheckBoxWidget replaceCheckBox;
+  private CheckBoxWidget bindCheckBox;
+  private CheckBoxWidget patternCheckBox;
+  private CheckBoxWidget chatCheckBox;
+  private CheckBoxWidget aboveHeadCheckBox;
+  private CheckBoxWidget tabListCheckBox;
 
-  public EditNameTagPopup(@NotNull CustomNameTag nameTag, @NotNull CustomNameTagsConfiguration config, @NotNull Consumer<CustomNameTag> onDataChange) {
+  public EditNameTagPopup(@NotNull CustomNameTag nameTag, @NotNull NameTagRegistry registry, @NotNull Consumer<CustomNameTag> onDataChange) {
     DivWidget inputContainer = new DivWidget();
     inputContainer.addId("input-container");
 
@@ -47,6 +64,7 @@ public class EditNameTagPopup extends SimpleAdvancedPopup {
     //Build areas of popup
     this.buildOriginalInputArea(inputWidget, nameTag);
     this.buildCustomNameInputArea(inputWidget, customNamePreview, nameTag);
+    this.buildBackgroundInputArea(inputWidget, nameTag);
     this.buildCheckboxArea(inputWidget, nameTag);
 
     /////////////////////////////////////////////// Popup logic
@@ -62,15 +80,42 @@ public class EditNameTagPopup extends SimpleAdvancedPopup {
     this.confirmButton = SimplePopupButton.create(
         Component.translatable("labymod.ui.button.done"),
         ignored -> {
-          nameTag.setEnabled(this.enabledCheckBox.state() == State.CHECKED);
-          nameTag.setReplaceScoreboard(this.replaceCheckBox.state() == State.CHECKED);
-          nameTag.setOriginalName(mcNameInput.getText());
-          nameTag.setCustomName(customNameInput.getText());
-          Map<String, CustomNameTag> customTags = config.getCustomTags();
-          customTags.remove(nameTag.getOriginalName()); //Remove for the case the username was changed (and therefore the key)
-          customTags.put(nameTag.getOriginalName(), nameTag);
-          onDataChange.accept(nameTag);
-          Laby.fireEvent(new PlayerListUpdateEvent()); //Make sure the changes are displayed immediately
+          String previousName = nameTag.getOriginalName();
+          String originalName = mcNameInput.getText();
+          boolean pattern = this.patternCheckBox.state() == State.CHECKED;
+          String patternError = pattern ? NamePatterns.findError(originalName) : null;
+          if (patternError != null) {
+            //Patterns that can not be compiled or would backtrack catastrophically are rejected
+            this.showPatternError(originalName, patternError);
+            return;
+          }
+
+          CustomNameTag editedNameTag = CustomNameTag.of(
+              originalName,
+              customNameInput.getText(),
+              this.enabledCheckBox.state() == State.CHECKED,
+              this.replaceCheckBox.state() == State.CHECKED,
+              this.resolveUniqueId(nameTag, previousName, originalName)
+          );
+          editedNameTag.setBackground(NameTagBackground.parse(this.backgroundInput.getText()));
+          editedNameTag.setPattern(pattern);
+          editedNameTag.setDisabledContexts(this.getDisabledContexts());
+          if (pattern && editedNameTag.isEnabled()) {
+            //Patterns that are valid on their own may still be too complex together with the others
+            NameTagSnapshot snapshot = registry.snapshot();
+            Map<String, CustomNameTag> tags = new HashMap<>(snapshot.tags());
+            tags.remove(previousName);
+            tags.put(originalName, editedNameTag);
+            String combinedError = NamePatterns.findCombinedError(snapshot.valuesWith(tags));
+            if (combinedError != null) {
+              this.showPatternError(originalName, combinedError);
+              return;
+            }
+          }
+
+          //The published tags are shared with the render thread, so the edit is stored as a new tag
+          registry.edit(editor -> editor.put(previousName, editedNameTag)); //Removes the previous key for the case the username was changed
+          onDataChange.accept(editedNameTag); //The registry refreshes the player list if the player is online
         }
     );
     super.buttons.add(confirmButton);
@@ -89,9 +134,7 @@ public class EditNameTagPopup extends SimpleAdvancedPopup {
         "customnametags.gui.manage.name",
         icon,
         nameTag.getOriginalName(),
-        newValue -> {
-          icon.icon().set(this.getPlayerHead(newValue));
-        }
+        newValue -> this.headDebouncer.submit(() -> icon.icon().set(this.getPlayerHead(newValue)))
     );
   }
 
@@ -101,14 +144,24 @@ public class EditNameTagPopup extends SimpleAdvancedPopup {
         "customnametags.gui.manage.custom.name",
         new DivWidget(), //Placeholder
         nameTag.getCustomName(),
-        newValue -> {
-          customNamePreview.setComponent(
-              LegacyComponentSerializer.legacyAmpersand().deserialize(newValue)
-          );
-        }
+        newValue -> this.previewDebouncer.submit(() -> customNamePreview.setComponent(
+            LegacyComponentSerializer.legacyAmpersand().deserialize(newValue)
+        ))
     );
   }
 
+  private void buildBackgroundInputArea(@NotNull FlexibleContentWidget parent, @NotNull CustomNameTag nameTag) {
+    NameTagBackground background = nameTag.getBackground();
+    this.backgroundInput = this.buildInputArea(
+        parent,
+        "customnametags.gui.manage.background.name",
+        new DivWidget(), //Placeholder
+        background == null ? "" : background.toString(),
+        newValue -> {}
+    );
+    this.backgroundInput.placeholder(Component.translatable("customnametags.gui.manage.background.hint"));
+  }
+
   private @NotNull TextFieldWidget buildInputArea(
       @NotNull FlexibleContentWidget parent,
       @NotNull String translationKey,
@@ -147,6 +200,12 @@ public class EditNameTagPopup extends SimpleAdvancedPopup {
 
     this.enabledCheckBox = this.buildSingleCheckboxes(checkBoxList, "customnametags.gui.manage.enabled.name", nameTag.isEnabled());
     this.replaceCheckBox = this.buildSingleCheckboxes(checkBoxList, "customnametags.gui.manage.replace.name", nameTag.isReplaceScoreboard());
+    this.bindCheckBox = this.buildSingleCheckboxes(checkBoxList, "customnametags.gui.manage.bind.name", nameTag.getUniqueId() != null);
+    this.patternCheckBox = this.buildSingleCheckboxes(checkBoxList, "customnametags.gui.manage.pattern.name", nameTag.isPattern());
+    this.patternCheckBox.setPressable(this::updateConfirmButtonState); //Whether the name has to be a valid pattern changed
+    this.chatCheckBox = this.buildSingleCheckboxes(checkBoxList, "customnametags.gui.manage.context.chat", nameTag.isEnabledIn(NameTagContext.CHAT));
+    this.aboveHeadCheckBox = this.buildSingleCheckboxes(checkBoxList, "customnametags.gui.manage.context.aboveHead", nameTag.isEnabledIn(NameTagContext.ABOVE_HEAD));
+    this.tabListCheckBox = this.buildSingleCheckboxes(checkBoxList, "customnametags.gui.manage.context.tabList", nameTag.isEnabledIn(NameTagContext.TAB_LIST));
 
     parent.addContent(checkBoxList);
   }
@@ -170,13 +229,56 @@ public class EditNameTagPopup extends SimpleAdvancedPopup {
     return checkBox;
   }
 
+  private @Nullable UUID resolveUniqueId(@NotNull CustomNameTag nameTag, @NotNull String previousName, @NotNull String originalName) {
+    if (this.bindCheckBox.state() != State.CHECKED || this.patternCheckBox.state() == State.CHECKED) {
+      return null; //A pattern applies to many players, it can not be bound to one of them
+    }
+
+    UUID uniqueId = CustomNameTags.get().profileResolver().resolve(originalName);
+    if (uniqueId == null && originalName.equalsIgnoreCase(previousName)) {
+      return nameTag.getUniqueId(); //The player was not seen yet, keep the existing binding
+    }
+
+    return uniqueId;
+  }
+
+  private void showPatternError(@NotNull String pattern, @NotNull String error) {
+    SimpleAdvancedPopup.builder()
+        .title(super.title)
+        .description(Component.translatable("customnametags.gui.manage.pattern.invalid", Component.text(pattern), Component.text(error)))
+        .addButton(SimplePopupButton.confirm(ignored -> { }))
+        .build()
+        .displayInOverlay();
+  }
+
+  private int getDisabledContexts() {
+    int disabledContexts = 0; //The scoreboard context is the replace checkbox
+    if (this.chatCheckBox.state() != State.CHECKED) {
+      disabledContexts |= NameTagContext.CHAT.mask();
+    }
+
+    if (this.aboveHeadCheckBox.state() != State.CHECKED) {
+      disabledContexts |= NameTagContext.ABOVE_HEAD.mask();
+    }
+
+    if (this.tabListCheckBox.state() != State.CHECKED) {
+      disabledContexts |= NameTagContext.TAB_LIST.mask();
+    }
+
+    return disabledContexts;
+  }
+
   private void updateConfirmButtonState() {
+    String originalName = this.mcNameInput.getText();
+    String background = this.backgroundInput.getText();
     this.confirmButton.enabled(
-        !this.mcNameInput.getText().isBlank() && !this.customNameInput.getText().isBlank()
+        !originalName.isBlank() && !this.customNameInput.getText().isBlank()
+            && (this.patternCheckBox.state() != State.CHECKED || NamePatterns.isValid(originalName))
+            && (background.isBlank() || NameTagBackground.parse(background) != null) //Empty uses the configured background
     );
   }
 
   private @NotNull Icon getPlayerHead(@NotNull String userName) {
-    return Icon.head(userName.isEmpty() ? "MHF_Question" : userName);
+    return CustomNameTags.get().headIconCache().head(userName);
   }
 }
@@ -0,0 +1,140 @@
+package net.labymod.addons.customnametags.gui.popup;
+
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.registry.NameTagRegistry;
+import net.labymod.addons.customnametags.transfer.NameTagTransfer;
+import net.labymod.addons.customnametags.transfer.NameTagTransfer.ImportResult;
+import net.labymod.api.Constants.Files;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.gui.screen.activity.Link;
+import net.labymod.api.client.gui.screen.widget.widgets.ComponentWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.DivWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.input.TextFieldWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.layout.FlexibleContentWidget;
+import net.labymod.api.client.gui.screen.widget.widgets.popup.SimpleAdvancedPopup;
+import org.jetbrains.annotations.NotNull;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+
+@Link("manage.lss")
+public class TransferNameTagsPopup extends SimpleAdvancedPopup {
+
+  private static final String DEFAULT_FILE_NAME = "name-tags.csv";
+
+  private final SimplePopupButton confirmButton;
+  private final TextFieldWidget pathInput;
+
+  public TransferNameTagsPopup(@NotNull Mode mode, @NotNull NameTagRegistry registry, @NotNull Runnable onImport) {
+    String translationKey = "customnametags.gui.transfer." + mode.name().toLowerCase(Locale.ROOT);
+
+    DivWidget inputContainer = new DivWidget();
+    inputContainer.addId("transfer-container");
+
+    FlexibleContentWidget inputWidget = new FlexibleContentWidget();
+    inputWidget.addId("input-list");
+
+    ComponentWidget label = ComponentWidget.i18n("customnametags.gui.transfer.path");
+    label.addId("label-name");
+    inputWidget.addContent(label);
+
+    this.pathInput = new TextFieldWidget();
+    this.pathInput.addId("path-input");
+    this.pathInput.maximalLength(256);
+    this.pathInput.setText(Files.CONFIGS.resolve("customnametags").resolve(DEFAULT_FILE_NAME).toString());
+    this.pathInput.updateListener(newValue -> this.updateConfirmButtonState());
+    inputWidget.addContent(this.pathInput);
+
+    ComponentWidget formats = ComponentWidget.i18n("customnametags.gui.transfer.formats");
+    formats.addId("transfer-formats");
+    inputWidget.addContent(formats);
+
+    inputContainer.addChild(inputWidget);
+
+    super.title = Component.translatable(translationKey + ".title");
+    super.widgetFunction = container -> container.addChild(inputContainer);
+
+    super.buttons = new ArrayList<>();
+    this.confirmButton = SimplePopupButton.create(
+        Component.translatable(translationKey + ".button"),
+        ignored -> {
+          if (mode == Mode.IMPORT) {
+            this.importTags(registry, onImport);
+          } else {
+            this.exportTags(registry);
+          }
+        }
+    );
+    super.buttons.add(this.confirmButton);
+    super.buttons.add(SimplePopupButton.cancel());
+
+    super.displayInOverlay();
+  }
+
+  private void importTags(@NotNull NameTagRegistry registry, @NotNull Runnable onImport) {
+    Path path = this.path();
+    if (path == null) {
+      return;
+    }
+
+    try {
+      ImportResult result = NameTagTransfer.importFrom(path, registry);
+      onImport.run(); //The import is a single edit, so the player list is refreshed at most once
+      this.showResult(Component.translatable(
+          "customnametags.gui.transfer.import.done",
+          Component.text(String.valueOf(result.imported())),
+          Component.text(String.valueOf(result.skipped()))
+      ));
+    } catch (IOException exception) {
+      this.showResult(Component.translatable("customnametags.gui.transfer.failed", Component.text(String.valueOf(exception.getMessage()))));
+    }
+  }
+
+  private void exportTags(@NotNull NameTagRegistry registry) {
+    Path path = this.path();
+    if (path == null) {
+      return;
+    }
+
+    Collection<CustomNameTag> customNameTags = registry.snapshot().tags().values(); //Shared tags belong to their files
+    try {
+      NameTagTransfer.exportTo(path, customNameTags);
+      this.showResult(Component.translatable(
+          "customnametags.gui.transfer.export.done",
+          Component.text(String.valueOf(customNameTags.size())),
+          Component.text(path.toAbsolutePath().toString())
+      ));
+    } catch (IOException exception) {
+      this.showResult(Component.translatable("customnametags.gui.transfer.failed", Component.text(String.valueOf(exception.getMessage()))));
+    }
+  }
+
+  private void updateConfirmButtonState() {
+    this.confirmButton.enabled(!this.pathInput.getText().isBlank());
+  }
+
+  private Path path() {
+    try {
+      return Path.of(this.pathInput.getText().trim());
+    } catch (InvalidPathException exception) {
+      this.showResult(Component.translatable("customnametags.gui.transfer.failed", Component.text(exception.getMessage())));
+      return null;
+    }
+  }
+
+  private void showResult(@NotNull Component description) {
+    SimpleAdvancedPopup.builder()
+        .title(super.title)
+        .description(description)
+        .addButton(SimplePopupButton.confirm(ignored -> { }))
+        .build()
+        .displayInOverlay();
+  }
+
+  public enum Mode {
+    IMPORT, EXPORT
+  }
+}
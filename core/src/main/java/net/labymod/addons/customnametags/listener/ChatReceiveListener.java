@@ -16,11 +16,13 @@
 
 package net.labymod.addons.customnametags.listener;
 
-import java.util.Locale;
-import java.util.Map.Entry;
-import java.util.Set;
-import net.labymod.addons.customnametags.CustomNameTag;
 import net.labymod.addons.customnametags.CustomNameTags;
+import net.labymod.addons.customnametags.cache.ChatMessageCache;
+import net.labymod.addons.customnametags.cache.ComponentFingerprint;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.matcher.CombinedNameMatcher;
+import net.labymod.addons.customnametags.metrics.AddonMetrics;
+import net.labymod.addons.customnametags.registry.NameTagSnapshot;
 import net.labymod.api.client.component.Component;
 import net.labymod.api.event.Priority;
 import net.labymod.api.event.Subscribe;
@@ -37,44 +39,42 @@ public class ChatReceiveListener {
 
   @Subscribe(Priority.LATEST)
   public void onChatReceive(ChatReceiveEvent event) {
-    Component message = event.message();
-    boolean replaced = false;
+    AddonMetrics metrics = this.addon.metrics();
+    long start = metrics.start();
+    try {
+      this.rewriteMessage(event, metrics);
+    } finally {
+      metrics.recordChatReceive(start);
+    }
+  }
 
-    Set<Entry<String, CustomNameTag>> entries = this.addon.configuration().getCustomTags()
-        .entrySet();
-    boolean hasName = false;
-    String formattedText = event.chatMessage().getFormattedText();
-    String lowercaseFormattedText = formattedText.toLowerCase(Locale.ROOT);
-    for (Entry<String, CustomNameTag> entry : entries) {
-      if (entry.getValue().isEnabled() && lowercaseFormattedText.contains(
-          entry.getKey().toLowerCase(Locale.ROOT))) {
-        hasName = true;
-        break;
-      }
+  private void rewriteMessage(ChatReceiveEvent event, AddonMetrics metrics) {
+    NameTagSnapshot snapshot = this.addon.registry().snapshot().forContext(NameTagContext.CHAT);
+    CombinedNameMatcher matcher = snapshot.matcher();
+    if (matcher.isEmpty() || !snapshot.prefilter().mayMatch(event.message())) {
+      return; // Most messages end here, before any string is built
     }
 
-    if (!hasName) {
+    // The plain text, formatting codes in the formatted text would split names
+    if (!this.addon.mayContainName(event.message(), matcher)) {
       return;
     }
 
-    message = this.addon.replaceLegacyContext(message);
+    String formattedText = event.chatMessage().getFormattedText();
 
-    for (Entry<String, CustomNameTag> customTagEntry : entries) {
-      if (!customTagEntry.getValue().isEnabled()) {
-        continue;
+    ChatMessageCache cache = this.addon.chatMessageCache();
+    long fingerprint = ComponentFingerprint.of(event.message());
+    Component message = cache.get(formattedText, snapshot.version(), fingerprint);
+    if (message == null) {
+      message = this.addon.replaceLegacyContext(event.message(), matcher);
+      boolean replaced = this.addon.replaceUsernames(message, matcher);
+      if (replaced) {
+        message.append(PlayerNameTagRenderEvent.EDITED_COMPONENT);
       }
 
-      if (this.addon.replaceUsername(
-          message,
-          customTagEntry.getKey(),
-          () -> customTagEntry.getValue().displayName().copy()
-      )) {
-        replaced = true;
-      }
-    }
+      metrics.recordReplacement(replaced);
 
-    if (replaced) {
-      message.append(PlayerNameTagRenderEvent.EDITED_COMPONENT);
+      cache.put(formattedText, snapshot.version(), fingerprint, message);
     }
 
     event.setMessage(message);
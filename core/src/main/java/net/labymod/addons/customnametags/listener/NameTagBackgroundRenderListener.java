@@ -1,22 +1,79 @@
 package net.labymod.addons.customnametags.listener;
 
+import net.labymod.addons.customnametags.CustomNameTag;
 import net.labymod.addons.customnametags.CustomNameTags;
 import net.labymod.addons.customnametags.CustomNameTagsConfiguration;
+import net.labymod.addons.customnametags.background.BackgroundState;
+import net.labymod.addons.customnametags.background.NameTagBackground;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.metrics.AddonMetrics;
+import net.labymod.api.client.entity.player.Player;
 import net.labymod.api.client.entity.player.tag.event.NameTagBackgroundRenderEvent;
 import net.labymod.api.event.Subscribe;
+import net.labymod.api.util.Color;
 
 public class NameTagBackgroundRenderListener {
 
   private final CustomNameTags customNameTags;
 
+  // The background of the configuration, resolved whenever one of its settings changes
+  private volatile long defaultState;
+
   public NameTagBackgroundRenderListener(CustomNameTags customNameTags) {
     this.customNameTags = customNameTags;
+
+    CustomNameTagsConfiguration configuration = customNameTags.configuration();
+    configuration.shouldHideNameTagBackground().addChangeListener(
+        (property, oldValue, newValue) -> this.refreshDefaultState()
+    );
+    configuration.color().addChangeListener(
+        (property, oldValue, newValue) -> this.refreshDefaultState()
+    );
+    this.refreshDefaultState();
   }
 
   @Subscribe
   public void onNameTagBackgroundRender(NameTagBackgroundRenderEvent event) {
+    AddonMetrics metrics = this.customNameTags.metrics();
+    long start = metrics.start();
+    try {
+      long state = this.defaultState;
+      if (event.entity() instanceof Player player
+          && this.customNameTags.contextDispatchTable().isActive(NameTagContext.ABOVE_HEAD)) {
+        CustomNameTag customNameTag = this.customNameTags.registry().snapshot()
+            .forContext(NameTagContext.ABOVE_HEAD)
+            .get(player.getUniqueId(), player.getName());
+
+        NameTagBackground background;
+        if (customNameTag != null
+            && customNameTag.isEnabled()
+            && (background = customNameTag.getBackground()) != null) {
+          state = background.state();
+        }
+      }
+
+      if (BackgroundState.isLiveColor(state)) {
+        // The chroma color of the configuration is animated by LabyMod itself
+        event.setCancelled(false);
+        event.setColor(this.customNameTags.configuration().color().get().get());
+      } else {
+        BackgroundState.apply(event, state);
+      }
+    } finally {
+      metrics.recordNameTagBackground(start);
+    }
+  }
+
+  private void refreshDefaultState() {
     CustomNameTagsConfiguration configuration = this.customNameTags.configuration();
-    event.setCancelled(configuration.shouldHideNameTagBackground().get());
-    event.setColor(configuration.color().get().get());
+    if (configuration.shouldHideNameTagBackground().get()) {
+      this.defaultState = BackgroundState.hidden();
+      return;
+    }
+
+    Color color = configuration.color().get();
+    this.defaultState = color.isChroma()
+        ? BackgroundState.liveColor()
+        : BackgroundState.color(color.get());
   }
 }
@@ -0,0 +1,45 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.listener;
+
+import net.labymod.api.event.Subscribe;
+import net.labymod.api.event.client.network.playerinfo.PlayerInfoRemoveEvent;
+import net.labymod.api.event.client.network.server.ServerDisconnectEvent;
+
+/**
+ * Forgets the cached name tags of players that left. Unlike the render listener, which is
+ * unsubscribed while no tag applies to name tags, it stays registered as long as the addon is
+ * enabled, so the caches are never reused for players and servers they were not built for.
+ */
+public class NameTagCacheListener {
+
+  private final PlayerNameTagRenderListener nameTagRenderListener;
+
+  public NameTagCacheListener(PlayerNameTagRenderListener nameTagRenderListener) {
+    this.nameTagRenderListener = nameTagRenderListener;
+  }
+
+  @Subscribe
+  public void onPlayerInfoRemove(PlayerInfoRemoveEvent event) {
+    this.nameTagRenderListener.invalidate(event.playerInfo().profile().getUniqueId());
+  }
+
+  @Subscribe
+  public void onServerDisconnect(ServerDisconnectEvent event) {
+    this.nameTagRenderListener.invalidateAll();
+  }
+}
@@ -16,95 +16,213 @@
 
 package net.labymod.addons.customnametags.listener;
 
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.List;
+import java.util.UUID;
 import net.labymod.addons.customnametags.CustomNameTag;
 import net.labymod.addons.customnametags.CustomNameTags;
+import net.labymod.addons.customnametags.cache.ComponentFingerprint;
+import net.labymod.addons.customnametags.cache.DisplayNamePool;
+import net.labymod.addons.customnametags.cache.NameTagRenderCache;
+import net.labymod.addons.customnametags.cache.TeamLineCache;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.matcher.SingleNameMatcher;
+import net.labymod.addons.customnametags.matcher.SuffixTrie;
+import net.labymod.addons.customnametags.metrics.AddonMetrics;
+import net.labymod.addons.customnametags.registry.NameTagChange;
+import net.labymod.addons.customnametags.registry.NameTagSnapshot;
 import net.labymod.api.client.component.Component;
 import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.entity.player.GameProfile;
+import net.labymod.api.client.network.ClientPacketListener;
 import net.labymod.api.client.network.NetworkPlayerInfo;
+import net.labymod.api.client.scoreboard.ScoreboardTeam;
 import net.labymod.api.event.Subscribe;
 import net.labymod.api.event.client.render.PlayerNameTagRenderEvent;
 import net.labymod.api.event.client.render.PlayerNameTagRenderEvent.Context;
-import net.labymod.api.util.Pair;
 
 public class PlayerNameTagRenderListener {
 
+  private static final int MAXIMUM_CACHED_PLAYERS = 512;
+  private static final int MAXIMUM_CACHED_TEAM_LINES = 1024;
+
   private final CustomNameTags addon;
+  private final NameTagRenderCache renderCache;
+  private final TeamLineCache teamLineCache = new TeamLineCache(MAXIMUM_CACHED_TEAM_LINES);
+  private final SingleNameMatcher nameMatcher = new SingleNameMatcher();
 
   public PlayerNameTagRenderListener(CustomNameTags addon) {
     this.addon = addon;
+    this.renderCache = new NameTagRenderCache(MAXIMUM_CACHED_PLAYERS);
   }
 
   @Subscribe
   public void onPlayerNameTagRender(PlayerNameTagRenderEvent event) {
+    AddonMetrics metrics = this.addon.metrics();
+    long start = metrics.start();
+    try {
+      this.rewriteNameTag(event, metrics);
+    } finally {
+      metrics.recordNameTagRender(event.context(), start);
+    }
+  }
+
+  private void rewriteNameTag(PlayerNameTagRenderEvent event, AddonMetrics metrics) {
     NetworkPlayerInfo networkPlayerInfo = event.getPlayerInfo();
     if (networkPlayerInfo == null) {
       return;
     }
 
+    NameTagContext context = event.context() == Context.TAB_LIST
+        ? NameTagContext.TAB_LIST
+        : NameTagContext.ABOVE_HEAD;
+    if (!this.addon.contextDispatchTable().isActive(context)) {
+      return; // Subscribed for the other context
+    }
+
+    NameTagSnapshot snapshot = this.addon.registry().snapshot().forContext(context);
     String playerName;
     CustomNameTag customNameTag;
     if (event.context() == Context.TAB_LIST && this.addon.configuration().checkForStringInTabList()
         .get()) {
-      Pair<String, CustomNameTag> pair = this.getCustomNameTag(
-          this.addon.configuration().getCustomTags().entrySet(),
-          event.nameTag()
-      );
-
-      if (pair == null) {
-        playerName = null;
-        customNameTag = null;
-      } else {
-        playerName = pair.getFirst();
-        customNameTag = pair.getSecond();
-      }
+      customNameTag = this.getCustomNameTag(snapshot.suffixTrie(), event.nameTag());
+      playerName = customNameTag == null ? null : customNameTag.getOriginalName();
     } else {
       playerName = networkPlayerInfo.profile().getUsername();
-      customNameTag = this.getCustomNameTag(playerName);
+      customNameTag = snapshot.get(networkPlayerInfo.profile().getUniqueId(), playerName);
+    }
+
+    if (customNameTag == null) {
+      // Pattern tags only apply to the actual name of the player, never to a suffix
+      playerName = networkPlayerInfo.profile().getUsername();
+      customNameTag = snapshot.patternAutomaton().match(playerName);
     }
 
     if (customNameTag == null || !customNameTag.isEnabled()) {
       return;
     }
 
-    if (customNameTag.isReplaceScoreboard()) {
-      event.setNameTag(customNameTag.displayName().copy());
-    } else {
-      Component newNameTag = this.addon.replaceLegacyContext(event.nameTag().copy());
-      this.addon.replaceUsername(
-          newNameTag,
-          playerName,
-          () -> customNameTag.displayName().copy()
+    if (customNameTag.isReplaceScoreboard()
+        && this.addon.contextDispatchTable().isActive(NameTagContext.SCOREBOARD)) {
+      event.setNameTag(
+          DisplayNamePool.global().instantiate(customNameTag.getCustomName(), null)
       );
+    } else {
+      // The prefilter only knows the original names of the tags. A tag that was found by the
+      // unique id or a pattern replaces the current name of the player, which may be another one
+      if (playerName.equalsIgnoreCase(customNameTag.getOriginalName())
+          && !snapshot.prefilter().mayMatch(event.nameTag())) {
+        return; // Skips hashing and copying name tags that show no known name at all
+      }
+
+      UUID uniqueId = networkPlayerInfo.profile().getUniqueId();
+      long fingerprint = ComponentFingerprint.of(event.nameTag());
+
+      // Lines decorated by a team repeat every frame, they are cached per team, player and line
+      ScoreboardTeam team = event.context() == Context.TAB_LIST
+          ? null
+          : networkPlayerInfo.getTeam();
+      Component cachedNameTag = team == null
+          ? this.renderCache.get(
+              uniqueId,
+              event.context(),
+              event.nameTag(),
+              fingerprint,
+              customNameTag
+          )
+          : this.teamLineCache.get(
+              team.getTeamName(),
+              playerName,
+              customNameTag,
+              event.nameTag(),
+              fingerprint,
+              snapshot.version()
+          );
+
+      metrics.recordRenderCache(cachedNameTag != null);
+      if (cachedNameTag != null) {
+        event.setNameTag(cachedNameTag);
+        return;
+      }
+
+      SingleNameMatcher matcher = this.nameMatcher.set(playerName, customNameTag);
+      if (!this.addon.mayContainName(event.nameTag(), matcher)) {
+        return;
+      }
+
+      Component newNameTag = this.addon.replaceLegacyContext(event.nameTag().copy(), matcher);
+      metrics.recordReplacement(this.addon.replaceUsernames(newNameTag, matcher));
+      if (team == null) {
+        this.renderCache.put(
+            uniqueId,
+            event.context(),
+            event.nameTag(),
+            fingerprint,
+            customNameTag,
+            newNameTag
+        );
+      } else {
+        this.teamLineCache.put(
+            team.getTeamName(),
+            playerName,
+            customNameTag,
+            event.nameTag(),
+            fingerprint,
+            snapshot.version(),
+            newNameTag
+        );
+      }
+
       event.setNameTag(newNameTag);
     }
   }
 
-  private CustomNameTag getCustomNameTag(String playerName) {
-    for (Entry<String, CustomNameTag> customTagEntry : this.addon.configuration().getCustomTags()
-        .entrySet()) {
-      CustomNameTag customNameTag = customTagEntry.getValue();
-      if (customTagEntry.getKey().equalsIgnoreCase(playerName)) {
-        return customNameTag;
+  /**
+   * Forgets the cached name tags of the online players whose tag changed. Must be called on the
+   * render thread.
+   *
+   * @param change the published change of the registry
+   * @return whether the player list shows a changed tag and has to be refreshed
+   */
+  public boolean invalidate(NameTagChange change) {
+    ClientPacketListener packetListener = this.addon.labyAPI().minecraft()
+        .getClientPacketListener();
+    if (packetListener == null) {
+      return false;
+    }
+
+    if (this.addon.configuration().checkForStringInTabList().get()) {
+      // Any text of the player list may end with a changed name, only a full refresh is safe
+      this.renderCache.invalidateAll();
+      return true;
+    }
+
+    boolean affected = false;
+    for (NetworkPlayerInfo networkPlayerInfo : packetListener.getNetworkPlayerInfos()) {
+      GameProfile profile = networkPlayerInfo.profile();
+      if (change.affects(profile.getUsername(), profile.getUniqueId())) {
+        this.renderCache.invalidate(profile.getUniqueId());
+        affected = true;
       }
     }
 
-    return null;
+    return affected;
   }
 
-  private Pair<String, CustomNameTag> getCustomNameTag(
-      Set<Entry<String, CustomNameTag>> customNameTags,
-      Component component
-  ) {
-    for (Component child : component.getChildren()) {
-      Pair<String, CustomNameTag> pair = this.getCustomNameTag(
-          customNameTags,
-          child
-      );
+  public void invalidate(UUID uniqueId) {
+    this.renderCache.invalidate(uniqueId);
+  }
+
+  public void invalidateAll() {
+    this.renderCache.invalidateAll();
+    this.teamLineCache.invalidateAll();
+  }
 
-      if (pair != null) {
-        return pair;
+  private CustomNameTag getCustomNameTag(SuffixTrie suffixTrie, Component component) {
+    List<Component> children = component.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      CustomNameTag customNameTag = this.getCustomNameTag(suffixTrie, children.get(i));
+      if (customNameTag != null) {
+        return customNameTag;
       }
     }
 
@@ -112,13 +230,6 @@ public class PlayerNameTagRenderListener {
       return null;
     }
 
-    String text = textComponent.getText().toLowerCase().trim();
-    for (Entry<String, CustomNameTag> customNameTag : customNameTags) {
-      if (text.endsWith(customNameTag.getKey().toLowerCase())) {
-        return Pair.of(customNameTag.getKey(), customNameTag.getValue());
-      }
-    }
-
-    return null;
+    return suffixTrie.findSuffix(textComponent.getText());
   }
 }
@@ -0,0 +1,50 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Finds the names of literal tags and the names matching pattern tags in one matcher. A name that
+ * has a literal tag is never matched by a pattern.
+ */
+public final class CombinedNameMatcher implements NameMatcher {
+
+  private final NameAutomaton literals;
+  private final PatternAutomaton patterns;
+
+  public CombinedNameMatcher(@NotNull NameAutomaton literals, @NotNull PatternAutomaton patterns) {
+    this.literals = literals;
+    this.patterns = patterns;
+  }
+
+  public boolean isEmpty() {
+    return this.literals.isEmpty() && this.patterns.isEmpty();
+  }
+
+  @Override
+  public boolean containsAny(@NotNull CharSequence text) {
+    return this.literals.containsAny(text) || this.patterns.containsAny(text);
+  }
+
+  @Override
+  public int findMatches(@NotNull CharSequence text, @NotNull MatchBuffer buffer) {
+    this.literals.findMatches(text, buffer);
+    this.patterns.addMatches(text, buffer);
+    return buffer.size();
+  }
+}
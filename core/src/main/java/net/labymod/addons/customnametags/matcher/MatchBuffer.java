@@ -0,0 +1,153 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.Arrays;
+import net.labymod.addons.customnametags.CustomNameTag;
+
+/**
+ * A reusable buffer of name matches, stored as index ranges so collecting them does not allocate
+ * once the buffer has grown to the number of matches per text.
+ */
+public final class MatchBuffer {
+
+  private int[] starts = new int[8];
+  private int[] ends = new int[8];
+  private CustomNameTag[] tags = new CustomNameTag[8];
+  private int size;
+
+  public void clear() {
+    for (int i = 0; i < this.size; i++) {
+      this.tags[i] = null;
+    }
+
+    this.size = 0;
+  }
+
+  public void add(int start, int end, CustomNameTag customNameTag) {
+    if (this.size == this.starts.length) {
+      int capacity = this.size << 1;
+      this.starts = Arrays.copyOf(this.starts, capacity);
+      this.ends = Arrays.copyOf(this.ends, capacity);
+      this.tags = Arrays.copyOf(this.tags, capacity);
+    }
+
+    this.starts[this.size] = start;
+    this.ends[this.size] = end;
+    this.tags[this.size] = customNameTag;
+    this.size++;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public int start(int index) {
+    return this.starts[index];
+  }
+
+  public int end(int index) {
+    return this.ends[index];
+  }
+
+  public CustomNameTag tag(int index) {
+    return this.tags[index];
+  }
+
+  /**
+   * Removes all matches that overlap a longer match, keeping the order of the remaining ones. The
+   * matches must have been added ordered by their end.
+   */
+  void removeOverlaps() {
+    if (this.size < 2) {
+      return;
+    }
+
+    // Encode the decision in the sign of the end, this way no additional array is needed
+    int decided = 0;
+    while (decided < this.size) {
+      int longest = -1;
+      for (int i = 0; i < this.size; i++) {
+        if (this.ends[i] > 0 && (longest == -1 || this.length(i) > this.length(longest))) {
+          longest = i;
+        }
+      }
+
+      boolean overlaps = false;
+      for (int i = 0; i < this.size; i++) {
+        boolean accepted = this.ends[i] < 0 && this.tags[i] != null;
+        if (accepted && this.starts[i] < this.starts[longest] + this.length(longest)
+            && this.starts[longest] < -this.ends[i]) {
+          overlaps = true;
+          break;
+        }
+      }
+
+      if (overlaps) {
+        this.tags[longest] = null;
+      }
+
+      this.ends[longest] = -this.ends[longest];
+      decided++;
+    }
+
+    int size = 0;
+    for (int i = 0; i < this.size; i++) {
+      if (this.tags[i] == null) {
+        continue;
+      }
+
+      this.starts[size] = this.starts[i];
+      this.ends[size] = -this.ends[i];
+      this.tags[size] = this.tags[i];
+      size++;
+    }
+
+    for (int i = size; i < this.size; i++) {
+      this.tags[i] = null;
+    }
+
+    this.size = size;
+  }
+
+  /**
+   * Orders the matches by their start again after matches of another matcher were added.
+   */
+  void sortByStart() {
+    // Insertion sort, a text rarely has more than a handful of matches
+    for (int i = 1; i < this.size; i++) {
+      int start = this.starts[i];
+      int end = this.ends[i];
+      CustomNameTag customNameTag = this.tags[i];
+      int j = i - 1;
+      while (j >= 0 && this.starts[j] > start) {
+        this.starts[j + 1] = this.starts[j];
+        this.ends[j + 1] = this.ends[j];
+        this.tags[j + 1] = this.tags[j];
+        j--;
+      }
+
+      this.starts[j + 1] = start;
+      this.ends[j + 1] = end;
+      this.tags[j + 1] = customNameTag;
+    }
+  }
+
+  private int length(int index) {
+    return Math.abs(this.ends[index]) - this.starts[index];
+  }
+}
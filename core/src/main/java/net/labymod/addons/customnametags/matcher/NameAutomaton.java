@@ -0,0 +1,252 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An Aho-Corasick automaton over the original names of all enabled custom name tags. It finds
+ * every name in a text with a single pass, regardless of how many tags are configured.
+ */
+public final class NameAutomaton implements NameMatcher {
+
+  private static final NameAutomaton EMPTY = new NameAutomaton(
+      new char[][]{new char[0]},
+      new int[][]{new int[0]},
+      new int[]{0},
+      new int[]{-1},
+      new int[]{-1},
+      new String[0],
+      new CustomNameTag[0]
+  );
+
+  private final char[][] edgeCharacters;
+  private final int[][] edgeTargets;
+  private final int[] failure;
+  private final int[] output;
+  private final int[] outputLink;
+  private final String[] names;
+  private final CustomNameTag[] tags;
+
+  private NameAutomaton(
+      char[][] edgeCharacters,
+      int[][] edgeTargets,
+      int[] failure,
+      int[] output,
+      int[] outputLink,
+      String[] names,
+      CustomNameTag[] tags
+  ) {
+    this.edgeCharacters = edgeCharacters;
+    this.edgeTargets = edgeTargets;
+    this.failure = failure;
+    this.output = output;
+    this.outputLink = outputLink;
+    this.names = names;
+    this.tags = tags;
+  }
+
+  /**
+   * Compiles an automaton over the original names of all enabled tags.
+   *
+   * @param customNameTags the tags to compile
+   * @return the compiled automaton
+   */
+  public static @NotNull NameAutomaton compile(@NotNull Collection<CustomNameTag> customNameTags) {
+    List<String> names = new ArrayList<>();
+    List<CustomNameTag> tags = new ArrayList<>();
+
+    List<Map<Character, Integer>> edges = new ArrayList<>();
+    List<Integer> output = new ArrayList<>();
+    edges.add(new HashMap<>());
+    output.add(-1);
+
+    for (CustomNameTag customNameTag : customNameTags) {
+      String name = customNameTag.getOriginalName();
+      if (!customNameTag.isEnabled() || customNameTag.isPattern()
+          || name == null || name.isEmpty()) {
+        continue;
+      }
+
+      int state = 0;
+      for (int i = 0; i < name.length(); i++) {
+        Map<Character, Integer> stateEdges = edges.get(state);
+        Integer target = stateEdges.get(name.charAt(i));
+        if (target == null) {
+          target = edges.size();
+          stateEdges.put(name.charAt(i), target);
+          edges.add(new HashMap<>());
+          output.add(-1);
+        }
+
+        state = target;
+      }
+
+      if (output.get(state) == -1) {
+        output.set(state, names.size());
+        names.add(name);
+        tags.add(customNameTag);
+      }
+    }
+
+    if (names.isEmpty()) {
+      return EMPTY;
+    }
+
+    int states = edges.size();
+    char[][] edgeCharacters = new char[states][];
+    int[][] edgeTargets = new int[states][];
+    for (int state = 0; state < states; state++) {
+      Map<Character, Integer> stateEdges = edges.get(state);
+      char[] characters = new char[stateEdges.size()];
+      int index = 0;
+      for (Character character : stateEdges.keySet()) {
+        characters[index++] = character;
+      }
+
+      Arrays.sort(characters);
+      int[] targets = new int[characters.length];
+      for (int i = 0; i < characters.length; i++) {
+        targets[i] = stateEdges.get(characters[i]);
+      }
+
+      edgeCharacters[state] = characters;
+      edgeTargets[state] = targets;
+    }
+
+    int[] outputs = new int[states];
+    for (int state = 0; state < states; state++) {
+      outputs[state] = output.get(state);
+    }
+
+    int[] failure = new int[states];
+    int[] outputLink = new int[states];
+    outputLink[0] = -1;
+
+    NameAutomaton automaton = new NameAutomaton(
+        edgeCharacters,
+        edgeTargets,
+        failure,
+        outputs,
+        outputLink,
+        names.toArray(new String[0]),
+        tags.toArray(new CustomNameTag[0])
+    );
+
+    // Breadth-first, so the failure state of every parent is known before its children
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    for (int target : edgeTargets[0]) {
+      failure[target] = 0;
+      outputLink[target] = -1;
+      queue.add(target);
+    }
+
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      char[] characters = edgeCharacters[state];
+      int[] targets = edgeTargets[state];
+      for (int i = 0; i < characters.length; i++) {
+        int target = targets[i];
+        int fallback = automaton.next(failure[state], characters[i]);
+        failure[target] = fallback;
+        outputLink[target] = outputs[fallback] != -1 ? fallback : outputLink[fallback];
+        queue.add(target);
+      }
+    }
+
+    return automaton;
+  }
+
+  public static @NotNull NameAutomaton empty() {
+    return EMPTY;
+  }
+
+  public boolean isEmpty() {
+    return this.names.length == 0;
+  }
+
+  @Override
+  public boolean containsAny(@NotNull CharSequence text) {
+    if (this.isEmpty()) {
+      return false;
+    }
+
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = this.next(state, text.charAt(i));
+      if (this.output[state] != -1 || this.outputLink[state] != -1) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public int findMatches(@NotNull CharSequence text, @NotNull MatchBuffer buffer) {
+    buffer.clear();
+    if (this.isEmpty()) {
+      return 0;
+    }
+
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = this.next(state, text.charAt(i));
+
+      // The first valid output is the longest name ending at this position
+      int outputState = this.output[state] != -1 ? state : this.outputLink[state];
+      while (outputState != -1) {
+        int pattern = this.output[outputState];
+        int end = i + 1;
+        int start = end - this.names[pattern].length();
+        if (NameCharacters.isBoundary(text, start - 1) && NameCharacters.isBoundary(text, end)) {
+          buffer.add(start, end, this.tags[pattern]);
+          break;
+        }
+
+        outputState = this.outputLink[outputState];
+      }
+    }
+
+    buffer.removeOverlaps();
+    return buffer.size();
+  }
+
+  private int next(int state, char character) {
+    while (true) {
+      char[] characters = this.edgeCharacters[state];
+      int index = Arrays.binarySearch(characters, character);
+      if (index >= 0) {
+        return this.edgeTargets[state][index];
+      }
+
+      if (state == 0) {
+        return 0;
+      }
+
+      state = this.failure[state];
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+/**
+ * A lookup table for the characters that may appear in a Minecraft username.
+ */
+public final class NameCharacters {
+
+  private static final boolean[] NAME_CHARACTERS = new boolean[128];
+
+  static {
+    for (char character = 'A'; character <= 'Z'; character++) {
+      NAME_CHARACTERS[character] = true;
+      NAME_CHARACTERS[character + ('a' - 'A')] = true;
+    }
+
+    for (char character = '0'; character <= '9'; character++) {
+      NAME_CHARACTERS[character] = true;
+    }
+
+    NAME_CHARACTERS['_'] = true;
+  }
+
+  private NameCharacters() {
+  }
+
+  public static boolean isNameCharacter(char character) {
+    return character < 128 && NAME_CHARACTERS[character];
+  }
+
+  /**
+   * Checks whether the character at the index does not continue a name, which is the case at the
+   * bounds of the text and for every character that can not be part of a name.
+   *
+   * @param text  the text to check
+   * @param index the index of the character, may be outside the text
+   * @return whether a name may start or end next to this index
+   */
+  public static boolean isBoundary(CharSequence text, int index) {
+    return index < 0 || index >= text.length() || !isNameCharacter(text.charAt(index));
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Finds the names of custom name tags in a text.
+ */
+public interface NameMatcher {
+
+  /**
+   * Checks whether the text may contain a name, ignoring word boundaries.
+   *
+   * @param text the text to check
+   * @return whether a name occurs anywhere in the text
+   */
+  boolean containsAny(@NotNull CharSequence text);
+
+  /**
+   * Collects all names in the text that are not surrounded by other name characters. The matches
+   * do not overlap and are ordered by their position.
+   *
+   * @param text   the text to scan
+   * @param buffer the buffer to collect the matches into, it is cleared first
+   * @return the number of matches
+   */
+  int findMatches(@NotNull CharSequence text, @NotNull MatchBuffer buffer);
+}
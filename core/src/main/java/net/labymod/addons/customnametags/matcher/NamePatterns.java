@@ -0,0 +1,522 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parses the original names of pattern tags. A pattern that starts with {@code ^} is a regular
+ * expression, every other pattern is a wildcard where {@code *} matches any number and {@code ?}
+ * exactly one name character. Both always have to match a whole name, ignoring its case.
+ *
+ * <p>Only the regular expression features that can be compiled into a DFA are supported: groups,
+ * alternations, character classes, {@code .}, {@code \d}, {@code \w} and the quantifiers
+ * {@code *}, {@code +}, {@code ?} and {@code {n,m}}. Quantifiers nested into an unbounded
+ * quantifier are rejected, they would backtrack catastrophically in every other regex engine.
+ */
+public final class NamePatterns {
+
+  static final int SYMBOLS = 37;
+  static final long ANY = (1L << SYMBOLS) - 1;
+
+  private static final long DIGITS = (1L << 10) - 1;
+  private static final int MAXIMUM_REPETITIONS = 16;
+
+  private NamePatterns() {
+  }
+
+  /**
+   * Checks whether the pattern can be saved, which requires it to be valid and to compile into an
+   * automaton of a reasonable size.
+   *
+   * @param pattern the pattern to check
+   * @return whether the pattern is valid
+   */
+  public static boolean isValid(@NotNull String pattern) {
+    return findError(pattern) == null;
+  }
+
+  /**
+   * Describes why a pattern can not be saved.
+   *
+   * @param pattern the pattern to check
+   * @return the reason or {@code null} if the pattern is valid
+   * @see #isValid(String)
+   */
+  public static @Nullable String findError(@NotNull String pattern) {
+    try {
+      PatternAutomaton.build(List.of(parse(pattern)), PatternAutomaton.MAXIMUM_PATTERN_STATES);
+      return null;
+    } catch (IllegalArgumentException exception) {
+      // Also covers PatternSyntaxException
+      return String.valueOf(exception.getMessage());
+    }
+  }
+
+  /**
+   * Describes why the enabled patterns of the tags can not be used together. Every pattern may be
+   * valid on its own and still the automaton over all of them may grow too large.
+   *
+   * @param customNameTags the tags that would apply, tags that are no patterns are ignored
+   * @return the reason or {@code null} if the patterns can be compiled together
+   */
+  public static @Nullable String findCombinedError(
+      @NotNull Collection<CustomNameTag> customNameTags
+  ) {
+    List<Node> patterns = new ArrayList<>();
+    for (CustomNameTag customNameTag : customNameTags) {
+      if (!customNameTag.isPattern() || !customNameTag.isEnabled()) {
+        continue;
+      }
+
+      try {
+        patterns.add(parse(customNameTag.getOriginalName()));
+      } catch (IllegalArgumentException exception) {
+        // Invalid patterns are skipped when compiling, they do not add to the automaton
+      }
+    }
+
+    if (patterns.isEmpty()) {
+      return null;
+    }
+
+    try {
+      PatternAutomaton.build(patterns, PatternAutomaton.MAXIMUM_STATES);
+      return null;
+    } catch (IllegalArgumentException exception) {
+      return String.valueOf(exception.getMessage());
+    }
+  }
+
+  /**
+   * Returns the index of a name character in the alphabet of the automaton. Upper case letters
+   * share the index of their lower case variant.
+   *
+   * @param character the character
+   * @return the index or {@code -1} if the character can not be part of a name
+   */
+  static int symbol(char character) {
+    if (character >= '0' && character <= '9') {
+      return character - '0';
+    }
+
+    if (character >= 'a' && character <= 'z') {
+      return character - 'a' + 10;
+    }
+
+    if (character >= 'A' && character <= 'Z') {
+      return character - 'A' + 10;
+    }
+
+    return character == '_' ? 36 : -1;
+  }
+
+  static @NotNull Node parse(@NotNull String pattern) {
+    String trimmed = pattern.trim();
+    if (trimmed.isEmpty()) {
+      throw new PatternSyntaxException("Empty pattern", pattern, 0);
+    }
+
+    if (trimmed.charAt(0) == '^') {
+      return new Parser(trimmed).parseRegex();
+    }
+
+    List<Node> nodes = new ArrayList<>();
+    for (int i = 0; i < trimmed.length(); i++) {
+      char character = trimmed.charAt(i);
+      if (character == '*') {
+        nodes.add(new Repeat(new Characters(ANY), 0, -1));
+      } else if (character == '?') {
+        nodes.add(new Characters(ANY));
+      } else {
+        nodes.add(new Characters(literal(character, trimmed, i)));
+      }
+    }
+
+    return new Sequence(nodes);
+  }
+
+  private static long literal(char character, String pattern, int index) {
+    int symbol = symbol(character);
+    if (symbol == -1) {
+      throw new PatternSyntaxException(
+          "'" + character + "' can not be part of a name",
+          pattern,
+          index
+      );
+    }
+
+    return 1L << symbol;
+  }
+
+  /**
+   * A node of a parsed pattern. The nodes are only used to build the automaton.
+   */
+  abstract static class Node {
+
+    /**
+     * Checks whether the node may repeat without a bound, which is what makes nesting it into
+     * another quantifier catastrophic for backtracking engines.
+     *
+     * @return whether the node contains an unbounded quantifier
+     */
+    abstract boolean isUnbounded();
+  }
+
+  static final class Characters extends Node {
+
+    final long symbols;
+
+    Characters(long symbols) {
+      this.symbols = symbols;
+    }
+
+    @Override
+    boolean isUnbounded() {
+      return false;
+    }
+  }
+
+  static final class Sequence extends Node {
+
+    final List<Node> nodes;
+
+    Sequence(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    boolean isUnbounded() {
+      for (Node node : this.nodes) {
+        if (node.isUnbounded()) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+
+  static final class Alternation extends Node {
+
+    final List<Node> alternatives;
+
+    Alternation(List<Node> alternatives) {
+      this.alternatives = alternatives;
+    }
+
+    @Override
+    boolean isUnbounded() {
+      for (Node node : this.alternatives) {
+        if (node.isUnbounded()) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+
+  static final class Repeat extends Node {
+
+    final Node node;
+    final int minimum;
+    final int maximum; // -1 if the repetitions are not bounded
+
+    Repeat(Node node, int minimum, int maximum) {
+      this.node = node;
+      this.minimum = minimum;
+      this.maximum = maximum;
+    }
+
+    @Override
+    boolean isUnbounded() {
+      return this.maximum == -1 || this.node.isUnbounded();
+    }
+  }
+
+  /**
+   * A recursive descent parser for the supported subset of regular expressions.
+   */
+  private static final class Parser {
+
+    private final String pattern;
+    private final int end;
+    private int index;
+
+    private Parser(String pattern) {
+      this.pattern = pattern;
+      this.index = 1; // Skip the leading ^
+
+      // A trailing $ is allowed, but redundant as every pattern has to match the whole name
+      int end = pattern.length();
+      if (end > 1 && pattern.charAt(end - 1) == '$' && !this.isEscaped(end - 1)) {
+        end--;
+      }
+
+      this.end = end;
+    }
+
+    private Node parseRegex() {
+      Node node = this.parseAlternation();
+      if (this.index < this.end) {
+        throw this.error("Unexpected '" + this.pattern.charAt(this.index) + "'");
+      }
+
+      return node;
+    }
+
+    private Node parseAlternation() {
+      List<Node> alternatives = new ArrayList<>();
+      alternatives.add(this.parseSequence());
+      while (this.index < this.end && this.pattern.charAt(this.index) == '|') {
+        this.index++;
+        alternatives.add(this.parseSequence());
+      }
+
+      return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Node parseSequence() {
+      List<Node> nodes = new ArrayList<>();
+      while (this.index < this.end) {
+        char character = this.pattern.charAt(this.index);
+        if (character == '|' || character == ')') {
+          break;
+        }
+
+        nodes.add(this.parseQuantifiers(this.parseAtom()));
+      }
+
+      return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+    }
+
+    private Node parseQuantifiers(Node node) {
+      while (this.index < this.end) {
+        int start = this.index;
+        char character = this.pattern.charAt(this.index);
+        int minimum;
+        int maximum;
+        if (character == '*') {
+          minimum = 0;
+          maximum = -1;
+          this.index++;
+        } else if (character == '+') {
+          minimum = 1;
+          maximum = -1;
+          this.index++;
+        } else if (character == '?') {
+          minimum = 0;
+          maximum = 1;
+          this.index++;
+        } else if (character == '{') {
+          this.index++;
+          minimum = this.parseNumber();
+          maximum = minimum;
+          if (this.consume(',')) {
+            maximum = this.peekIs('}') ? -1 : this.parseNumber();
+          }
+
+          if (!this.consume('}')) {
+            throw this.error("Unclosed repetition");
+          }
+
+          if (maximum != -1 && maximum < minimum) {
+            throw this.error("Invalid repetition range");
+          }
+        } else {
+          return node;
+        }
+
+        // Lazy quantifiers are accepted, a DFA does not distinguish them from greedy ones
+        if (this.peekIs('?')) {
+          this.index++;
+        } else if (this.peekIs('+')) {
+          throw this.error("Possessive quantifiers are not supported");
+        }
+
+        if ((maximum == -1 || maximum > 1) && node.isUnbounded()) {
+          this.index = start;
+          throw this.error("Nested quantifiers may backtrack catastrophically");
+        }
+
+        node = new Repeat(node, minimum, maximum);
+      }
+
+      return node;
+    }
+
+    private Node parseAtom() {
+      char character = this.pattern.charAt(this.index++);
+      switch (character) {
+        case '(' -> {
+          if (this.pattern.startsWith("?:", this.index)) {
+            this.index += 2;
+          } else if (this.peekIs('?')) {
+            throw this.error("Lookarounds and named groups are not supported");
+          }
+
+          Node node = this.parseAlternation();
+          if (!this.consume(')')) {
+            throw this.error("Unclosed group");
+          }
+
+          return node;
+        }
+        case '[' -> {
+          return new Characters(this.parseClass());
+        }
+        case '.' -> {
+          return new Characters(ANY);
+        }
+        case '\\' -> {
+          return new Characters(this.parseEscape(false));
+        }
+        case '*', '+', '?', '{' -> {
+          this.index--;
+          throw this.error("Quantifier without a preceding expression");
+        }
+        case '^', '$' -> {
+          this.index--;
+          throw this.error("Anchors are only allowed at the start and the end");
+        }
+        default -> {
+          return new Characters(literal(character, this.pattern, this.index - 1));
+        }
+      }
+    }
+
+    private long parseClass() {
+      boolean negated = this.consume('^');
+      long symbols = 0;
+      boolean first = true;
+      while (this.index < this.end && (first || this.pattern.charAt(this.index) != ']')) {
+        first = false;
+        char character = this.pattern.charAt(this.index++);
+        if (character == '\\') {
+          symbols |= this.parseEscape(true);
+          continue;
+        }
+
+        if (this.index + 1 < this.end && this.pattern.charAt(this.index) == '-'
+            && this.pattern.charAt(this.index + 1) != ']') {
+          char last = this.pattern.charAt(this.index + 1);
+          this.index += 2;
+          if (last < character) {
+            throw this.error("Invalid character range");
+          }
+
+          for (char member = character; member <= last; member++) {
+            int symbol = symbol(member);
+            if (symbol != -1) {
+              symbols |= 1L << symbol;
+            }
+          }
+        } else {
+          // Characters that can not be part of a name simply never match inside a class
+          int symbol = symbol(character);
+          if (symbol != -1) {
+            symbols |= 1L << symbol;
+          }
+        }
+      }
+
+      if (!this.consume(']')) {
+        throw this.error("Unclosed character class");
+      }
+
+      return negated ? ~symbols & ANY : symbols;
+    }
+
+    private long parseEscape(boolean inClass) {
+      if (this.index >= this.end) {
+        throw this.error("Trailing backslash");
+      }
+
+      char character = this.pattern.charAt(this.index++);
+      return switch (character) {
+        case 'd' -> DIGITS;
+        case 'D' -> ~DIGITS & ANY;
+        case 'w' -> ANY;
+        case 'W', 's' -> 0L; // Never part of a name
+        case 'S' -> ANY;
+        default -> {
+          if (Character.isLetterOrDigit(character)) {
+            throw this.error("Unsupported escape \\" + character);
+          }
+
+          int symbol = symbol(character);
+          if (symbol == -1 && !inClass) {
+            throw this.error("'" + character + "' can not be part of a name");
+          }
+
+          yield symbol == -1 ? 0L : 1L << symbol;
+        }
+      };
+    }
+
+    private int parseNumber() {
+      int start = this.index;
+      while (this.index < this.end && Character.isDigit(this.pattern.charAt(this.index))) {
+        this.index++;
+      }
+
+      if (start == this.index || this.index - start > 3) {
+        throw this.error("Invalid repetition count");
+      }
+
+      int number = Integer.parseInt(this.pattern.substring(start, this.index));
+      if (number > MAXIMUM_REPETITIONS) {
+        throw this.error("Repetitions are limited to " + MAXIMUM_REPETITIONS);
+      }
+
+      return number;
+    }
+
+    private boolean consume(char character) {
+      if (this.peekIs(character)) {
+        this.index++;
+        return true;
+      }
+
+      return false;
+    }
+
+    private boolean peekIs(char character) {
+      return this.index < this.end && this.pattern.charAt(this.index) == character;
+    }
+
+    private boolean isEscaped(int index) {
+      int backslashes = 0;
+      while (index - backslashes - 1 >= 0 && this.pattern.charAt(index - backslashes - 1) == '\\') {
+        backslashes++;
+      }
+
+      return (backslashes & 1) == 1;
+    }
+
+    private PatternSyntaxException error(String description) {
+      return new PatternSyntaxException(description, this.pattern, this.index);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.component.TranslatableComponent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A cheap test whether a text may contain the name of any tag, meant to reject the large majority
+ * of texts before anything is copied or rebuilt. It streams the characters of a component tree
+ * through a bitset of all characters that occur in a name and a Bloom filter over the n-grams of
+ * all names. A text only passes if it has a run of consecutive known n-grams as long as the
+ * shortest name.
+ *
+ * <p>The test has false positives, never false negatives. Names are compared ignoring their case
+ * and may span several components, like the matching itself.
+ */
+public final class NamePrefilter {
+
+  private static final int MAXIMUM_GRAM_LENGTH = 3;
+  private static final int BITS_PER_GRAM = 10;
+  private static final int HASHES = 3;
+
+  // Sentinels of the required run, no text reaches the first and every text the second
+  private static final NamePrefilter REJECT_ALL = new NamePrefilter(
+      new long[2], false, new long[1], 1, Integer.MAX_VALUE
+  );
+  private static final NamePrefilter ACCEPT_ALL = new NamePrefilter(
+      new long[2], false, new long[1], 1, 0
+  );
+
+  // The state of a scan, packed so the scan does not allocate: the last characters in the lower
+  // 32 bits, then the number of them that are valid, then the length of the current run
+  private static final long MATCH = -1L;
+  private static final int FILLED_SHIFT = 32;
+  private static final int RUN_SHIFT = 34;
+
+  private final long[] characters;
+  private final boolean nonAsciiCharacters;
+  private final long[] bloom;
+  private final int gramLength;
+  private final int requiredRun;
+
+  private NamePrefilter(
+      long[] characters,
+      boolean nonAsciiCharacters,
+      long[] bloom,
+      int gramLength,
+      int requiredRun
+  ) {
+    this.characters = characters;
+    this.nonAsciiCharacters = nonAsciiCharacters;
+    this.bloom = bloom;
+    this.gramLength = gramLength;
+    this.requiredRun = requiredRun;
+  }
+
+  /**
+   * Builds the prefilter over the original names of all enabled tags. Pattern tags may match
+   * names without any known n-gram, so if one is enabled, every text passes.
+   *
+   * @param customNameTags the tags to build the prefilter for
+   * @return the prefilter
+   */
+  public static @NotNull NamePrefilter of(@NotNull Collection<CustomNameTag> customNameTags) {
+    List<String> names = new ArrayList<>();
+    int minimumLength = Integer.MAX_VALUE;
+    for (CustomNameTag customNameTag : customNameTags) {
+      if (!customNameTag.isEnabled()) {
+        continue;
+      }
+
+      if (customNameTag.isPattern()) {
+        return ACCEPT_ALL;
+      }
+
+      String name = customNameTag.getOriginalName();
+      if (name != null && !name.isEmpty()) {
+        names.add(name);
+        minimumLength = Math.min(minimumLength, name.length());
+      }
+    }
+
+    if (names.isEmpty()) {
+      return REJECT_ALL;
+    }
+
+    int gramLength = Math.min(MAXIMUM_GRAM_LENGTH, minimumLength);
+    int grams = 0;
+    for (String name : names) {
+      grams += name.length() - gramLength + 1;
+    }
+
+    // A power of two, so a bit index is a mask instead of a division
+    long[] bloom = new long[Math.max(1, Integer.highestOneBit(grams * BITS_PER_GRAM >>> 6) << 1)];
+    long[] characters = new long[2];
+    boolean nonAsciiCharacters = false;
+    for (String name : names) {
+      long gram = 0;
+      for (int i = 0; i < name.length(); i++) {
+        char character = fold(name.charAt(i));
+        if (character < 128) {
+          characters[character >>> 6] |= 1L << character;
+        } else {
+          nonAsciiCharacters = true;
+        }
+
+        gram = (gram << 16) | character;
+        if (i >= gramLength - 1) {
+          addGram(bloom, gram & gramMask(gramLength));
+        }
+      }
+    }
+
+    return new NamePrefilter(
+        characters,
+        nonAsciiCharacters,
+        bloom,
+        gramLength,
+        minimumLength - gramLength + 1
+    );
+  }
+
+  /**
+   * Checks whether the component tree may contain a name, without creating any string.
+   *
+   * @param component the component to check
+   * @return {@code false} if the tree can not contain any name
+   */
+  public boolean mayMatch(@NotNull Component component) {
+    if (this.requiredRun <= 0) {
+      return true;
+    }
+
+    return this.requiredRun != Integer.MAX_VALUE && this.scan(component, 0L) == MATCH;
+  }
+
+  private long scan(Component component, long state) {
+    if (component instanceof TextComponent textComponent) {
+      state = this.scan(textComponent.getText(), state);
+    } else {
+      // Whatever is rendered for other components is not known, it separates the texts
+      state = 0L;
+      if (component instanceof TranslatableComponent translatableComponent) {
+        List<Component> arguments = translatableComponent.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+          if (this.scan(arguments.get(i), 0L) == MATCH) {
+            return MATCH;
+          }
+        }
+      }
+    }
+
+    if (state == MATCH) {
+      return MATCH;
+    }
+
+    // Indexed loops, iterators would allocate for every visited component
+    List<Component> children = component.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      state = this.scan(children.get(i), state);
+      if (state == MATCH) {
+        return MATCH;
+      }
+    }
+
+    return state;
+  }
+
+  private long scan(String text, long state) {
+    int previousLength = this.gramLength - 1;
+    long window = state & 0xFFFFFFFFL;
+    int filled = (int) (state >>> FILLED_SHIFT) & 3;
+    int run = (int) (state >>> RUN_SHIFT);
+    for (int i = 0; i < text.length(); i++) {
+      char character = fold(text.charAt(i));
+      if (!this.isKnownCharacter(character)) {
+        window = 0;
+        filled = 0;
+        run = 0;
+        continue;
+      }
+
+      long gram = (window << 16) | character;
+      if (filled < previousLength) {
+        filled++;
+      } else if (this.containsGram(gram)) {
+        if (++run >= this.requiredRun) {
+          return MATCH;
+        }
+      } else {
+        run = 0;
+      }
+
+      window = gram & gramMask(previousLength);
+    }
+
+    return window | ((long) filled << FILLED_SHIFT) | ((long) run << RUN_SHIFT);
+  }
+
+  private boolean isKnownCharacter(char character) {
+    if (character < 128) {
+      return (this.characters[character >>> 6] & (1L << character)) != 0;
+    }
+
+    return this.nonAsciiCharacters;
+  }
+
+  private boolean containsGram(long gram) {
+    long[] bloom = this.bloom;
+    int mask = (bloom.length << 6) - 1;
+    long hash = mix(gram);
+    int first = (int) hash;
+    int second = (int) (hash >>> 32);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (first + i * second) & mask;
+      if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static void addGram(long[] bloom, long gram) {
+    int mask = (bloom.length << 6) - 1;
+    long hash = mix(gram);
+    int first = (int) hash;
+    int second = (int) (hash >>> 32);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (first + i * second) & mask;
+      bloom[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  private static long gramMask(int length) {
+    return length == 0 ? 0L : -1L >>> (64 - 16 * length);
+  }
+
+  private static long mix(long value) {
+    value *= 0x9E3779B97F4A7C15L;
+    value ^= value >>> 29;
+    value *= 0xBF58476D1CE4E5B9L;
+    return value ^ (value >>> 32);
+  }
+
+  private static char fold(char character) {
+    if (character < 128) {
+      return character >= 'A' && character <= 'Z' ? (char) (character + 32) : character;
+    }
+
+    // Same folding as String#equalsIgnoreCase
+    return Character.toLowerCase(Character.toUpperCase(character));
+  }
+}
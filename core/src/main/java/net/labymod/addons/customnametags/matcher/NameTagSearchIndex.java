@@ -0,0 +1,135 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A search index over the original and custom names of custom name tags, ordered by the original
+ * name. Names starting with the query are found by a binary search and listed first, followed by
+ * all tags that contain the query anywhere in their original or custom name.
+ */
+public final class NameTagSearchIndex {
+
+  private final CustomNameTag[] tags;
+  private final String[] originalNames;
+  private final String[] customNames;
+
+  private NameTagSearchIndex(CustomNameTag[] tags) {
+    this.tags = tags;
+    this.originalNames = new String[tags.length];
+    this.customNames = new String[tags.length];
+    for (int i = 0; i < tags.length; i++) {
+      this.originalNames[i] = tags[i].getOriginalName().toLowerCase(Locale.ROOT);
+      this.customNames[i] = plainText(tags[i].getCustomName()).toLowerCase(Locale.ROOT);
+    }
+  }
+
+  public static @NotNull NameTagSearchIndex of(@NotNull Collection<CustomNameTag> customNameTags) {
+    CustomNameTag[] tags = customNameTags.toArray(new CustomNameTag[0]);
+    Arrays.sort(tags, Comparator.comparing(
+        CustomNameTag::getOriginalName,
+        String.CASE_INSENSITIVE_ORDER
+    ));
+    return new NameTagSearchIndex(tags);
+  }
+
+  public int size() {
+    return this.tags.length;
+  }
+
+  /**
+   * Finds all tags matching the query, ignoring its case and the formatting codes of the custom
+   * names.
+   *
+   * @param query the text to search for, an empty query matches every tag
+   * @return the matching tags, those whose original name starts with the query first
+   */
+  public @NotNull List<CustomNameTag> search(@NotNull String query) {
+    String lowerCaseQuery = query.trim().toLowerCase(Locale.ROOT);
+    if (lowerCaseQuery.isEmpty()) {
+      return Collections.unmodifiableList(Arrays.asList(this.tags));
+    }
+
+    List<CustomNameTag> results = new ArrayList<>();
+    int prefixStart = this.lowerBound(lowerCaseQuery);
+    int prefixEnd = prefixStart;
+    while (prefixEnd < this.tags.length
+        && this.originalNames[prefixEnd].startsWith(lowerCaseQuery)) {
+      results.add(this.tags[prefixEnd++]);
+    }
+
+    for (int i = 0; i < this.tags.length; i++) {
+      if (i >= prefixStart && i < prefixEnd) {
+        continue;
+      }
+
+      if (this.originalNames[i].contains(lowerCaseQuery)
+          || this.customNames[i].contains(lowerCaseQuery)) {
+        results.add(this.tags[i]);
+      }
+    }
+
+    return results;
+  }
+
+  private int lowerBound(String lowerCaseQuery) {
+    int low = 0;
+    int high = this.originalNames.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (this.originalNames[middle].compareTo(lowerCaseQuery) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  private static String plainText(String customName) {
+    StringBuilder builder = new StringBuilder(customName.length());
+    for (int i = 0; i < customName.length(); i++) {
+      char character = customName.charAt(i);
+      if (character == '&' && i + 1 < customName.length()
+          && isFormattingCode(customName.charAt(i + 1))) {
+        i++;
+        continue;
+      }
+
+      builder.append(character);
+    }
+
+    return builder.toString();
+  }
+
+  private static boolean isFormattingCode(char character) {
+    char lowerCase = Character.toLowerCase(character);
+    return (lowerCase >= '0' && lowerCase <= '9')
+        || (lowerCase >= 'a' && lowerCase <= 'f')
+        || (lowerCase >= 'k' && lowerCase <= 'o')
+        || lowerCase == 'r';
+  }
+}
@@ -0,0 +1,456 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import static net.labymod.addons.customnametags.matcher.NamePatterns.SYMBOLS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.matcher.NamePatterns.Alternation;
+import net.labymod.addons.customnametags.matcher.NamePatterns.Characters;
+import net.labymod.addons.customnametags.matcher.NamePatterns.Node;
+import net.labymod.addons.customnametags.matcher.NamePatterns.Repeat;
+import net.labymod.addons.customnametags.matcher.NamePatterns.Sequence;
+import net.labymod.api.util.logging.Logging;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single DFA over the patterns of all enabled pattern tags. Every name in a text is run through
+ * the automaton once, so the cost of a text does not depend on the number of patterns.
+ *
+ * @see NamePatterns
+ */
+public final class PatternAutomaton implements NameMatcher {
+
+  static final int MAXIMUM_PATTERN_STATES = 4096;
+  static final int MAXIMUM_STATES = 1 << 16;
+
+  private static final Logging LOGGER = Logging.getLogger();
+
+  private static final PatternAutomaton EMPTY = new PatternAutomaton(
+      new int[0],
+      new int[0],
+      new CustomNameTag[0]
+  );
+
+  private final int[] transitions;
+  private final int[] accepting;
+  private final CustomNameTag[] tags;
+
+  private PatternAutomaton(int[] transitions, int[] accepting, CustomNameTag[] tags) {
+    this.transitions = transitions;
+    this.accepting = accepting;
+    this.tags = tags;
+  }
+
+  /**
+   * Compiles the patterns of all enabled pattern tags. If a name matches several patterns, the
+   * pattern that comes first alphabetically wins. Invalid patterns are skipped, they are already
+   * rejected when a tag is saved. If the patterns together need too many states, the patterns
+   * that exceed the limit are skipped as well, so the others still apply.
+   *
+   * @param customNameTags the tags to compile, tags that are no patterns are ignored
+   * @return the compiled automaton
+   */
+  public static @NotNull PatternAutomaton compile(
+      @NotNull Collection<CustomNameTag> customNameTags
+  ) {
+    List<CustomNameTag> patternTags = new ArrayList<>();
+    for (CustomNameTag customNameTag : customNameTags) {
+      if (customNameTag.isPattern() && customNameTag.isEnabled()) {
+        patternTags.add(customNameTag);
+      }
+    }
+
+    patternTags.sort(
+        Comparator.comparing(CustomNameTag::getOriginalName, String.CASE_INSENSITIVE_ORDER)
+    );
+
+    List<Node> patterns = new ArrayList<>();
+    List<CustomNameTag> tags = new ArrayList<>();
+    for (CustomNameTag customNameTag : patternTags) {
+      try {
+        patterns.add(NamePatterns.parse(customNameTag.getOriginalName()));
+        tags.add(customNameTag);
+      } catch (IllegalArgumentException exception) {
+        // Also covers PatternSyntaxException, the tag was stored before it was validated
+        LOGGER.warn("Skipping the invalid pattern " + customNameTag.getOriginalName() + ": "
+            + exception.getMessage());
+      }
+    }
+
+    if (patterns.isEmpty()) {
+      return EMPTY;
+    }
+
+    int[][] automaton;
+    try {
+      automaton = build(patterns, MAXIMUM_STATES);
+    } catch (IllegalArgumentException exception) {
+      automaton = buildWithinLimit(patterns, tags);
+    }
+
+    if (tags.isEmpty()) {
+      return EMPTY;
+    }
+
+    return new PatternAutomaton(automaton[0], automaton[1], tags.toArray(new CustomNameTag[0]));
+  }
+
+  // Adds the patterns one by one and skips every pattern that does not fit anymore
+  private static int[][] buildWithinLimit(List<Node> patterns, List<CustomNameTag> tags) {
+    List<Node> acceptedPatterns = new ArrayList<>();
+    List<CustomNameTag> acceptedTags = new ArrayList<>();
+    int[][] automaton = null;
+    for (int i = 0; i < patterns.size(); i++) {
+      acceptedPatterns.add(patterns.get(i));
+      try {
+        automaton = build(acceptedPatterns, MAXIMUM_STATES);
+        acceptedTags.add(tags.get(i));
+      } catch (IllegalArgumentException exception) {
+        acceptedPatterns.remove(acceptedPatterns.size() - 1);
+        LOGGER.warn("Skipping the pattern " + tags.get(i).getOriginalName()
+            + ", all patterns together need more than " + MAXIMUM_STATES + " states");
+      }
+    }
+
+    tags.clear();
+    tags.addAll(acceptedTags);
+    return automaton;
+  }
+
+  public static @NotNull PatternAutomaton empty() {
+    return EMPTY;
+  }
+
+  public boolean isEmpty() {
+    return this.tags.length == 0;
+  }
+
+  /**
+   * Finds the pattern tag that matches the whole name.
+   *
+   * @param name the name to match
+   * @return the matching tag or {@code null} if no pattern matches the name
+   */
+  public @Nullable CustomNameTag match(@NotNull String name) {
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    int state = 0;
+    for (int i = 0; i < name.length() && state != -1; i++) {
+      int symbol = NamePatterns.symbol(name.charAt(i));
+      state = symbol == -1 ? -1 : this.transitions[state * SYMBOLS + symbol];
+    }
+
+    return state == -1 || this.accepting[state] == -1 ? null : this.tags[this.accepting[state]];
+  }
+
+  @Override
+  public boolean containsAny(@NotNull CharSequence text) {
+    if (this.isEmpty()) {
+      return false;
+    }
+
+    int index = 0;
+    while ((index = this.nextName(text, index)) < text.length()) {
+      int end = this.nameEnd(text, index);
+      if (this.matchName(text, index, end) != -1) {
+        return true;
+      }
+
+      index = end;
+    }
+
+    return false;
+  }
+
+  @Override
+  public int findMatches(@NotNull CharSequence text, @NotNull MatchBuffer buffer) {
+    buffer.clear();
+    this.addMatches(text, buffer);
+    return buffer.size();
+  }
+
+  /**
+   * Adds every name of the text that matches a pattern and does not overlap a match that is
+   * already in the buffer. The buffer is ordered by position again afterwards.
+   *
+   * @param text   the text to scan
+   * @param buffer the buffer with the existing matches
+   */
+  void addMatches(@NotNull CharSequence text, @NotNull MatchBuffer buffer) {
+    if (this.isEmpty()) {
+      return;
+    }
+
+    int existingMatches = buffer.size();
+    int index = 0;
+    while ((index = this.nextName(text, index)) < text.length()) {
+      int end = this.nameEnd(text, index);
+      int pattern = this.matchName(text, index, end);
+      if (pattern != -1 && !overlaps(buffer, existingMatches, index, end)) {
+        buffer.add(index, end, this.tags[pattern]);
+      }
+
+      index = end;
+    }
+
+    if (existingMatches != 0 && buffer.size() != existingMatches) {
+      buffer.sortByStart();
+    }
+  }
+
+  private int nextName(CharSequence text, int index) {
+    while (index < text.length() && !NameCharacters.isNameCharacter(text.charAt(index))) {
+      index++;
+    }
+
+    return index;
+  }
+
+  private int nameEnd(CharSequence text, int index) {
+    while (index < text.length() && NameCharacters.isNameCharacter(text.charAt(index))) {
+      index++;
+    }
+
+    return index;
+  }
+
+  private int matchName(CharSequence text, int start, int end) {
+    int state = 0;
+    for (int i = start; i < end; i++) {
+      // Only called for name characters, which all have a symbol
+      state = this.transitions[state * SYMBOLS + NamePatterns.symbol(text.charAt(i))];
+      if (state == -1) {
+        return -1;
+      }
+    }
+
+    return this.accepting[state];
+  }
+
+  private static boolean overlaps(MatchBuffer buffer, int matches, int start, int end) {
+    for (int i = 0; i < matches; i++) {
+      if (buffer.start(i) < end && start < buffer.end(i)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Builds a DFA over the given patterns with the subset construction of their NFA.
+   *
+   * @param patterns      the parsed patterns
+   * @param maximumStates the maximum number of DFA states
+   * @return the transition table and the accepted pattern of every state
+   * @throws IllegalArgumentException if the automaton needs more states than allowed
+   */
+  static int[][] build(@NotNull List<Node> patterns, int maximumStates) {
+    Nfa nfa = new Nfa();
+    int start = nfa.newState();
+    for (int i = 0; i < patterns.size(); i++) {
+      int end = nfa.add(patterns.get(i), start);
+      nfa.accept(end, i);
+    }
+
+    Map<BitSet, Integer> states = new HashMap<>();
+    List<BitSet> sets = new ArrayList<>();
+    BitSet initial = new BitSet();
+    initial.set(start);
+    nfa.closure(initial);
+    states.put(initial, 0);
+    sets.add(initial);
+
+    int[] transitions = new int[16 * SYMBOLS];
+    for (int state = 0; state < sets.size(); state++) {
+      BitSet set = sets.get(state);
+      if (transitions.length < sets.size() * SYMBOLS) {
+        transitions = Arrays.copyOf(transitions, transitions.length * 2);
+      }
+
+      for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+        BitSet next = nfa.move(set, symbol);
+        int target = -1;
+        if (!next.isEmpty()) {
+          nfa.closure(next);
+          Integer known = states.get(next);
+          if (known == null) {
+            if (sets.size() == maximumStates) {
+              throw new IllegalArgumentException(
+                  "The patterns need more than " + maximumStates + " states"
+              );
+            }
+
+            known = sets.size();
+            states.put(next, known);
+            sets.add(next);
+          }
+
+          target = known;
+        }
+
+        transitions[state * SYMBOLS + symbol] = target;
+      }
+    }
+
+    int[] accepting = new int[sets.size()];
+    for (int state = 0; state < accepting.length; state++) {
+      accepting[state] = nfa.acceptedPattern(sets.get(state));
+    }
+
+    return new int[][]{Arrays.copyOf(transitions, sets.size() * SYMBOLS), accepting};
+  }
+
+  /**
+   * A Thompson NFA. Each state has at most one transition over a set of symbols and any number of
+   * epsilon transitions. States that are returned as the end of a fragment never have outgoing
+   * transitions yet, so every fragment can be continued from its end.
+   */
+  private static final class Nfa {
+
+    private final List<Long> symbols = new ArrayList<>();
+    private final List<Integer> targets = new ArrayList<>();
+    private final List<int[]> epsilons = new ArrayList<>();
+    private final List<Integer> accepted = new ArrayList<>();
+
+    private int newState() {
+      this.symbols.add(0L);
+      this.targets.add(-1);
+      this.epsilons.add(new int[0]);
+      this.accepted.add(-1);
+      return this.symbols.size() - 1;
+    }
+
+    private void epsilon(int from, int to) {
+      int[] edges = this.epsilons.get(from);
+      edges = Arrays.copyOf(edges, edges.length + 1);
+      edges[edges.length - 1] = to;
+      this.epsilons.set(from, edges);
+    }
+
+    private void accept(int state, int pattern) {
+      if (this.accepted.get(state) == -1) {
+        this.accepted.set(state, pattern);
+      }
+    }
+
+    private int add(Node node, int start) {
+      if (node instanceof Characters characters) {
+        int from = this.newState();
+        int end = this.newState();
+        this.epsilon(start, from);
+        this.symbols.set(from, characters.symbols);
+        this.targets.set(from, end);
+        return end;
+      }
+
+      if (node instanceof Sequence sequence) {
+        int end = start;
+        for (Node child : sequence.nodes) {
+          end = this.add(child, end);
+        }
+
+        return end;
+      }
+
+      if (node instanceof Alternation alternation) {
+        int end = this.newState();
+        for (Node alternative : alternation.alternatives) {
+          this.epsilon(this.add(alternative, start), end);
+        }
+
+        return end;
+      }
+
+      Repeat repeat = (Repeat) node;
+      int end = start;
+      for (int i = 0; i < repeat.minimum; i++) {
+        end = this.add(repeat.node, end);
+      }
+
+      if (repeat.maximum == -1) {
+        int loop = this.newState();
+        this.epsilon(end, loop);
+        this.epsilon(this.add(repeat.node, loop), loop);
+        end = this.newState();
+        this.epsilon(loop, end);
+        return end;
+      }
+
+      for (int i = repeat.minimum; i < repeat.maximum; i++) {
+        int optionalEnd = this.newState();
+        this.epsilon(end, optionalEnd);
+        this.epsilon(this.add(repeat.node, end), optionalEnd);
+        end = optionalEnd;
+      }
+
+      return end;
+    }
+
+    private void closure(BitSet set) {
+      ArrayDeque<Integer> queue = new ArrayDeque<>();
+      for (int state = set.nextSetBit(0); state >= 0; state = set.nextSetBit(state + 1)) {
+        queue.add(state);
+      }
+
+      while (!queue.isEmpty()) {
+        for (int target : this.epsilons.get(queue.poll())) {
+          if (!set.get(target)) {
+            set.set(target);
+            queue.add(target);
+          }
+        }
+      }
+    }
+
+    private BitSet move(BitSet set, int symbol) {
+      BitSet next = new BitSet();
+      for (int state = set.nextSetBit(0); state >= 0; state = set.nextSetBit(state + 1)) {
+        if ((this.symbols.get(state) & (1L << symbol)) != 0) {
+          next.set(this.targets.get(state));
+        }
+      }
+
+      return next;
+    }
+
+    private int acceptedPattern(BitSet set) {
+      int pattern = -1;
+      for (int state = set.nextSetBit(0); state >= 0; state = set.nextSetBit(state + 1)) {
+        int accepted = this.accepted.get(state);
+        if (accepted != -1 && (pattern == -1 || accepted < pattern)) {
+          pattern = accepted;
+        }
+      }
+
+      return pattern;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Matches the exact name of a single player. The matcher is mutable so the same instance can be
+ * reused for every rendered name tag.
+ */
+public final class SingleNameMatcher implements NameMatcher {
+
+  private String name;
+  private CustomNameTag customNameTag;
+
+  public SingleNameMatcher set(@NotNull String name, @NotNull CustomNameTag customNameTag) {
+    this.name = name;
+    this.customNameTag = customNameTag;
+    return this;
+  }
+
+  @Override
+  public boolean containsAny(@NotNull CharSequence text) {
+    return !this.name.isEmpty() && indexOf(text, this.name, 0) != -1;
+  }
+
+  @Override
+  public int findMatches(@NotNull CharSequence text, @NotNull MatchBuffer buffer) {
+    buffer.clear();
+    if (this.name.isEmpty()) {
+      return 0;
+    }
+
+    int length = this.name.length();
+    int next = indexOf(text, this.name, 0);
+    while (next != -1) {
+      int end = next + length;
+      if (NameCharacters.isBoundary(text, next - 1) && NameCharacters.isBoundary(text, end)) {
+        buffer.add(next, end, this.customNameTag);
+        next = indexOf(text, this.name, end);
+      } else {
+        next = indexOf(text, this.name, next + 1);
+      }
+    }
+
+    return buffer.size();
+  }
+
+  private static int indexOf(CharSequence text, String name, int fromIndex) {
+    if (text instanceof String string) {
+      return string.indexOf(name, fromIndex);
+    }
+
+    // A view over several components, compared in place instead of copying it into a string
+    char first = name.charAt(0);
+    int last = text.length() - name.length();
+    for (int i = fromIndex; i <= last; i++) {
+      if (text.charAt(i) != first) {
+        continue;
+      }
+
+      int j = 1;
+      while (j < name.length() && text.charAt(i + j) == name.charAt(j)) {
+        j++;
+      }
+
+      if (j == name.length()) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A trie over the reversed, lowercase original names of custom name tags. It answers which tag a
+ * text ends with by walking the text backwards once, independent of the number of tags.
+ */
+public final class SuffixTrie {
+
+  private final char[][] edgeCharacters;
+  private final int[][] edgeTargets;
+  private final CustomNameTag[] tags;
+
+  private SuffixTrie(char[][] edgeCharacters, int[][] edgeTargets, CustomNameTag[] tags) {
+    this.edgeCharacters = edgeCharacters;
+    this.edgeTargets = edgeTargets;
+    this.tags = tags;
+  }
+
+  public static @NotNull SuffixTrie compile(@NotNull Collection<CustomNameTag> customNameTags) {
+    List<Map<Character, Integer>> edges = new ArrayList<>();
+    List<CustomNameTag> tags = new ArrayList<>();
+    edges.add(new HashMap<>());
+    tags.add(null);
+
+    for (CustomNameTag customNameTag : customNameTags) {
+      String name = customNameTag.getOriginalName().trim();
+      if (name.isEmpty() || customNameTag.isPattern()) {
+        continue;
+      }
+
+      int state = 0;
+      for (int i = name.length() - 1; i >= 0; i--) {
+        char character = Character.toLowerCase(name.charAt(i));
+        Map<Character, Integer> stateEdges = edges.get(state);
+        Integer target = stateEdges.get(character);
+        if (target == null) {
+          target = edges.size();
+          stateEdges.put(character, target);
+          edges.add(new HashMap<>());
+          tags.add(null);
+        }
+
+        state = target;
+      }
+
+      if (tags.get(state) == null) {
+        tags.set(state, customNameTag);
+      }
+    }
+
+    int states = edges.size();
+    char[][] edgeCharacters = new char[states][];
+    int[][] edgeTargets = new int[states][];
+    for (int state = 0; state < states; state++) {
+      Map<Character, Integer> stateEdges = edges.get(state);
+      char[] characters = new char[stateEdges.size()];
+      int index = 0;
+      for (Character character : stateEdges.keySet()) {
+        characters[index++] = character;
+      }
+
+      Arrays.sort(characters);
+      int[] targets = new int[characters.length];
+      for (int i = 0; i < characters.length; i++) {
+        targets[i] = stateEdges.get(characters[i]);
+      }
+
+      edgeCharacters[state] = characters;
+      edgeTargets[state] = targets;
+    }
+
+    return new SuffixTrie(edgeCharacters, edgeTargets, tags.toArray(new CustomNameTag[0]));
+  }
+
+  /**
+   * Finds the tag whose original name the text ends with, ignoring the case and trailing
+   * whitespace. If several names match, the longest one is returned.
+   *
+   * @param text the text to check
+   * @return the matching tag or {@code null} if the text does not end with any name
+   */
+  public @Nullable CustomNameTag findSuffix(@NotNull String text) {
+    int end = text.length();
+    while (end > 0 && text.charAt(end - 1) <= ' ') {
+      end--;
+    }
+
+    CustomNameTag match = null;
+    int state = 0;
+    for (int i = end - 1; i >= 0; i--) {
+      char[] characters = this.edgeCharacters[state];
+      if (characters.length == 0) {
+        break;
+      }
+
+      int index = Arrays.binarySearch(characters, Character.toLowerCase(text.charAt(i)));
+      if (index < 0) {
+        break;
+      }
+
+      state = this.edgeTargets[state][index];
+      if (this.tags[state] != null) {
+        match = this.tags[state];
+      }
+    }
+
+    return match;
+  }
+}
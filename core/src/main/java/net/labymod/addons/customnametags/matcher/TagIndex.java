@@ -0,0 +1,182 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.Collection;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A case-insensitive hash index from original names to their custom name tags. Lookups hash and
+ * compare the characters in place, so they never allocate a lowercase copy of the name.
+ */
+public final class TagIndex {
+
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private String[] keys;
+  private CustomNameTag[] values;
+  private int size;
+
+  public TagIndex() {
+    this(MINIMUM_CAPACITY);
+  }
+
+  private TagIndex(int capacity) {
+    this.keys = new String[capacity];
+    this.values = new CustomNameTag[capacity];
+  }
+
+  public static @NotNull TagIndex of(@NotNull Collection<CustomNameTag> customNameTags) {
+    int capacity = MINIMUM_CAPACITY;
+    while (capacity < customNameTags.size() * 2) {
+      capacity <<= 1;
+    }
+
+    TagIndex index = new TagIndex(capacity);
+    for (CustomNameTag customNameTag : customNameTags) {
+      if (!customNameTag.isPattern()) {
+        index.put(customNameTag);
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Looks up the custom name tag of the given name, ignoring its case.
+   *
+   * @param name the name to look up
+   * @return the custom name tag or {@code null} if there is none
+   */
+  public @Nullable CustomNameTag get(@NotNull String name) {
+    String[] keys = this.keys;
+    int mask = keys.length - 1;
+    int slot = hash(name) & mask;
+
+    String key;
+    while ((key = keys[slot]) != null) {
+      if (key.length() == name.length() && key.regionMatches(true, 0, name, 0, name.length())) {
+        return this.values[slot];
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return null;
+  }
+
+  public void put(@NotNull CustomNameTag customNameTag) {
+    String name = customNameTag.getOriginalName();
+    if ((this.size + 1) * 2 > this.keys.length) {
+      this.resize(this.keys.length << 1);
+    }
+
+    int mask = this.keys.length - 1;
+    int slot = hash(name) & mask;
+
+    String key;
+    while ((key = this.keys[slot]) != null) {
+      if (key.length() == name.length() && key.regionMatches(true, 0, name, 0, name.length())) {
+        this.keys[slot] = name;
+        this.values[slot] = customNameTag;
+        return;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    this.keys[slot] = name;
+    this.values[slot] = customNameTag;
+    this.size++;
+  }
+
+  public void remove(@NotNull String name) {
+    int mask = this.keys.length - 1;
+    int slot = hash(name) & mask;
+
+    String key;
+    while ((key = this.keys[slot]) != null) {
+      if (key.length() == name.length() && key.regionMatches(true, 0, name, 0, name.length())) {
+        this.deleteSlot(slot);
+        this.size--;
+        return;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  private void deleteSlot(int slot) {
+    // Shift the following entries of the probe sequence back so lookups do not stop early
+    int mask = this.keys.length - 1;
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    String key;
+    while ((key = this.keys[next]) != null) {
+      int home = hash(key) & mask;
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        this.keys[gap] = key;
+        this.values[gap] = this.values[next];
+        gap = next;
+      }
+
+      next = (next + 1) & mask;
+    }
+
+    this.keys[gap] = null;
+    this.values[gap] = null;
+  }
+
+  private void resize(int capacity) {
+    String[] keys = this.keys;
+    CustomNameTag[] values = this.values;
+    this.keys = new String[capacity];
+    this.values = new CustomNameTag[capacity];
+    this.size = 0;
+
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        this.put(values[i]);
+      }
+    }
+  }
+
+  private static int hash(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      hash = 31 * hash + fold(name.charAt(i));
+    }
+
+    // Spread the higher bits, the capacity is always a power of two
+    return hash ^ (hash >>> 16);
+  }
+
+  private static char fold(char character) {
+    if (character < 128) {
+      return character >= 'A' && character <= 'Z' ? (char) (character + 32) : character;
+    }
+
+    // Same folding as String#equalsIgnoreCase
+    return Character.toLowerCase(Character.toUpperCase(character));
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import java.util.Collection;
+import java.util.UUID;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A hash index from the unique ids of players to the tags bound to them. The ids are stored as two
+ * longs per slot, so a lookup is a single probe without boxing or comparing objects.
+ */
+public final class UniqueIdIndex {
+
+  private static final UniqueIdIndex EMPTY = new UniqueIdIndex(1);
+
+  private final long[] mostSignificantBits;
+  private final long[] leastSignificantBits;
+  private final CustomNameTag[] values;
+
+  private UniqueIdIndex(int capacity) {
+    this.mostSignificantBits = new long[capacity];
+    this.leastSignificantBits = new long[capacity];
+    this.values = new CustomNameTag[capacity];
+  }
+
+  public static @NotNull UniqueIdIndex of(@NotNull Collection<CustomNameTag> customNameTags) {
+    int size = 0;
+    for (CustomNameTag customNameTag : customNameTags) {
+      if (customNameTag.getUniqueId() != null) {
+        size++;
+      }
+    }
+
+    if (size == 0) {
+      return EMPTY;
+    }
+
+    int capacity = 16;
+    while (capacity < size * 2) {
+      capacity <<= 1;
+    }
+
+    UniqueIdIndex index = new UniqueIdIndex(capacity);
+    for (CustomNameTag customNameTag : customNameTags) {
+      UUID uniqueId = customNameTag.getUniqueId();
+      if (uniqueId != null) {
+        index.put(
+            uniqueId.getMostSignificantBits(),
+            uniqueId.getLeastSignificantBits(),
+            customNameTag
+        );
+      }
+    }
+
+    return index;
+  }
+
+  public @Nullable CustomNameTag get(@NotNull UUID uniqueId) {
+    return this.get(uniqueId.getMostSignificantBits(), uniqueId.getLeastSignificantBits());
+  }
+
+  public @Nullable CustomNameTag get(long mostSignificantBits, long leastSignificantBits) {
+    CustomNameTag[] values = this.values;
+    int mask = values.length - 1;
+    int slot = hash(mostSignificantBits, leastSignificantBits) & mask;
+
+    CustomNameTag value;
+    while ((value = values[slot]) != null) {
+      if (this.mostSignificantBits[slot] == mostSignificantBits
+          && this.leastSignificantBits[slot] == leastSignificantBits) {
+        return value;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return null;
+  }
+
+  private void put(long mostSignificantBits, long leastSignificantBits, CustomNameTag value) {
+    int mask = this.values.length - 1;
+    int slot = hash(mostSignificantBits, leastSignificantBits) & mask;
+    while (this.values[slot] != null) {
+      if (this.mostSignificantBits[slot] == mostSignificantBits
+          && this.leastSignificantBits[slot] == leastSignificantBits) {
+        break;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    this.mostSignificantBits[slot] = mostSignificantBits;
+    this.leastSignificantBits[slot] = leastSignificantBits;
+    this.values[slot] = value;
+  }
+
+  private static int hash(long mostSignificantBits, long leastSignificantBits) {
+    long hash = (mostSignificantBits ^ leastSignificantBits) * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import net.labymod.api.event.client.render.PlayerNameTagRenderEvent.Context;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures the time the listeners of the addon spend on the hot paths. Collecting is disabled by
+ * default, a disabled {@link #start()} does not even read the clock.
+ */
+public final class AddonMetrics {
+
+  private static final long DISABLED = Long.MIN_VALUE;
+  private static final Context[] CONTEXTS = Context.values();
+
+  private final LatencyHistogram chatReceive = new LatencyHistogram();
+  private final LatencyHistogram nameTagBackground = new LatencyHistogram();
+  private final LatencyHistogram[] nameTagRender = new LatencyHistogram[CONTEXTS.length];
+
+  private final LongAdder replacementHits = new LongAdder();
+  private final LongAdder replacementMisses = new LongAdder();
+  private final LongAdder renderCacheHits = new LongAdder();
+  private final LongAdder renderCacheMisses = new LongAdder();
+
+  private volatile boolean enabled;
+
+  public AddonMetrics(boolean enabled) {
+    this.enabled = enabled;
+    for (int i = 0; i < this.nameTagRender.length; i++) {
+      this.nameTagRender[i] = new LatencyHistogram();
+    }
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Starts a measurement that is finished by one of the record methods.
+   *
+   * @return the start of the measurement
+   */
+  public long start() {
+    return this.enabled ? System.nanoTime() : DISABLED;
+  }
+
+  public void recordChatReceive(long start) {
+    if (start != DISABLED) {
+      this.chatReceive.record(System.nanoTime() - start);
+    }
+  }
+
+  public void recordNameTagBackground(long start) {
+    if (start != DISABLED) {
+      this.nameTagBackground.record(System.nanoTime() - start);
+    }
+  }
+
+  public void recordNameTagRender(@NotNull Context context, long start) {
+    if (start != DISABLED) {
+      this.nameTagRender[context.ordinal()].record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Counts whether a rewritten text actually contained a name.
+   *
+   * @param replaced whether at least one name was replaced
+   */
+  public void recordReplacement(boolean replaced) {
+    if (this.enabled) {
+      (replaced ? this.replacementHits : this.replacementMisses).increment();
+    }
+  }
+
+  public void recordRenderCache(boolean hit) {
+    if (this.enabled) {
+      (hit ? this.renderCacheHits : this.renderCacheMisses).increment();
+    }
+  }
+
+  public void reset() {
+    this.chatReceive.reset();
+    this.nameTagBackground.reset();
+    for (LatencyHistogram histogram : this.nameTagRender) {
+      histogram.reset();
+    }
+
+    this.replacementHits.reset();
+    this.replacementMisses.reset();
+    this.renderCacheHits.reset();
+    this.renderCacheMisses.reset();
+  }
+
+  /**
+   * Summarizes all measurements as human-readable lines.
+   *
+   * @return the lines of the report
+   */
+  public @NotNull List<String> report() {
+    List<String> lines = new ArrayList<>();
+    lines.add(line("Chat receive", this.chatReceive));
+    lines.add(line("Background render", this.nameTagBackground));
+    for (Context context : CONTEXTS) {
+      lines.add(line("Name tag " + context.name().toLowerCase(Locale.ROOT),
+          this.nameTagRender[context.ordinal()]));
+    }
+
+    lines.add(ratio("Replacements", this.replacementHits.sum(), this.replacementMisses.sum()));
+    lines.add(ratio("Render cache", this.renderCacheHits.sum(), this.renderCacheMisses.sum()));
+    return lines;
+  }
+
+  /**
+   * Writes the report to the given file, creating its parent directories if needed.
+   *
+   * @param path the file to write to
+   * @throws IOException if the file could not be written
+   */
+  public void dump(@NotNull Path path) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("CustomNameTags metrics, " + LocalDateTime.now());
+    lines.addAll(this.report());
+
+    Path parent = path.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+
+    Files.write(path, lines, StandardCharsets.UTF_8);
+  }
+
+  private static String line(String name, LatencyHistogram histogram) {
+    return String.format(
+        Locale.ROOT,
+        "%s: %d calls, mean %s, p50 %s, p99 %s, p99.9 %s, max %s, total %s",
+        name,
+        histogram.count(),
+        micros(histogram.meanNanos()),
+        micros(histogram.percentileNanos(50.0D)),
+        micros(histogram.percentileNanos(99.0D)),
+        micros(histogram.percentileNanos(99.9D)),
+        micros(histogram.maximumNanos()),
+        micros(histogram.totalNanos())
+    );
+  }
+
+  private static String ratio(String name, long hits, long misses) {
+    long total = hits + misses;
+    double share = total == 0 ? 0.0D : hits * 100.0D / total;
+    return String.format(Locale.ROOT, "%s: %d hits, %d misses (%.1f%%)", name, hits, misses, share);
+  }
+
+  private static String micros(long nanos) {
+    return String.format(Locale.ROOT, "%.1fµs", nanos / 1000.0D);
+  }
+}
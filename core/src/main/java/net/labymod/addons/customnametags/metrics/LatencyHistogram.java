@@ -0,0 +1,133 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with logarithmic buckets. Every power of two is split into a few
+ * linear sub-buckets, so each recorded value is off by at most an eighth, no matter how large it
+ * is. Recording only increments striped counters and never allocates.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final LongAccumulator maximum = new LongAccumulator(Math::max, 0L);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+
+    this.buckets[bucket(nanos)].increment();
+    this.count.increment();
+    this.total.add(nanos);
+    this.maximum.accumulate(nanos);
+  }
+
+  public long count() {
+    return this.count.sum();
+  }
+
+  public long totalNanos() {
+    return this.total.sum();
+  }
+
+  public long maximumNanos() {
+    return this.maximum.get();
+  }
+
+  public long meanNanos() {
+    long count = this.count();
+    return count == 0 ? 0 : this.totalNanos() / count;
+  }
+
+  /**
+   * Returns the upper bound of the bucket the given percentile falls into.
+   *
+   * @param percentile the percentile between 0 and 100
+   * @return the latency in nanoseconds or 0 if nothing was recorded
+   */
+  public long percentileNanos(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = this.buckets[i].sum();
+      count += counts[i];
+    }
+
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0D));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), this.maximumNanos());
+      }
+    }
+
+    return this.maximumNanos();
+  }
+
+  public void reset() {
+    for (LongAdder bucket : this.buckets) {
+      bucket.reset();
+    }
+
+    this.count.reset();
+    this.total.reset();
+    this.maximum.reset();
+  }
+
+  private static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    // The highest bit selects the power of two, the bits below it the linear sub-bucket
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+
+    int shift = bucket / SUB_BUCKETS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.migration;
+
+import com.google.gson.JsonObject;
+import java.util.HashMap;
+import java.util.Map;
+import net.labymod.api.util.logging.Logging;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Chains the registered migrations to bring a configuration from any older version to the
+ * current one. Every step edits the same tree and is timed and logged.
+ */
+public final class ConfigMigrator {
+
+  private final Logging logger;
+  private final Map<Integer, ConfigMigration> migrations = new HashMap<>();
+
+  public ConfigMigrator(@NotNull Logging logger) {
+    this.logger = logger;
+  }
+
+  /**
+   * Registers the migration from the given version to the next one.
+   *
+   * @param fromVersion the version the migration starts at
+   * @param migration   the migration to the version after it
+   * @return this migrator
+   */
+  public @NotNull ConfigMigrator register(int fromVersion, @NotNull ConfigMigration migration) {
+    this.migrations.put(fromVersion, migration);
+    return this;
+  }
+
+  /**
+   * Applies all migrations between the two versions in order. If a migration is missing or fails,
+   * the remaining migrations are skipped.
+   *
+   * @param configuration the configuration to migrate
+   * @param fromVersion   the version of the configuration
+   * @param toVersion     the version to migrate to
+   * @return the migrated configuration
+   */
+  public @NotNull JsonObject migrate(
+      @NotNull JsonObject configuration,
+      int fromVersion,
+      int toVersion
+  ) {
+    for (int version = fromVersion; version < toVersion; version++) {
+      ConfigMigration migration = this.migrations.get(version);
+      if (migration == null) {
+        this.logger.warn("No migration of the config from version " + version + " to version "
+            + (version + 1) + " exists.");
+        break;
+      }
+
+      long start = System.nanoTime();
+      try {
+        migration.migrate(configuration);
+      } catch (RuntimeException exception) {
+        this.logger.error("Migrating the config from version " + version + " to version "
+            + (version + 1) + " failed.", exception);
+        break;
+      }
+
+      long millis = (System.nanoTime() - start) / 1_000_000L;
+      this.logger.info("Updated config from version " + version + " to version " + (version + 1)
+          + " in " + millis + " ms.");
+    }
+
+    return configuration;
+  }
+}
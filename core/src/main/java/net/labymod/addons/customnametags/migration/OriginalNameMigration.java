@@ -0,0 +1,54 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.migration;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.Map.Entry;
+import net.labymod.api.util.logging.Logging;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Migrates version 1 to version 2, which stores the original name inside of every custom tag
+ * instead of only using it as the key.
+ */
+public final class OriginalNameMigration implements ConfigMigration {
+
+  private final Logging logger;
+
+  public OriginalNameMigration(@NotNull Logging logger) {
+    this.logger = logger;
+  }
+
+  @Override
+  public void migrate(@NotNull JsonObject configuration) {
+    JsonElement customTags = configuration.get("customTags");
+    if (customTags == null || !customTags.isJsonObject()) {
+      this.logger.warn("Could not find customTags in config.json, updating of config to version 2 failed.");
+      return;
+    }
+
+    for (Entry<String, JsonElement> entry : customTags.getAsJsonObject().entrySet()) {
+      JsonElement customTag = entry.getValue();
+      if (!customTag.isJsonObject()) {
+        this.logger.warn("Invalid customTag in config.json, updating of config to version 2 failed for entry " + entry.getKey() + ".");
+        continue;
+      }
+
+      customTag.getAsJsonObject().addProperty("originalName", entry.getKey());
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.profile;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Remembers the unique ids of the players seen in the player list, so a username entered in the
+ * editor can be bound to the player behind it. The cache is bounded and forgets the players that
+ * were not seen for the longest time.
+ */
+public final class ProfileResolver {
+
+  private final Map<String, UUID> uniqueIds;
+
+  public ProfileResolver(int maximumProfiles) {
+    this.uniqueIds = new LinkedHashMap<>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, UUID> eldest) {
+        return this.size() > maximumProfiles;
+      }
+    };
+  }
+
+  public synchronized void remember(@NotNull String username, @NotNull UUID uniqueId) {
+    this.uniqueIds.put(username.toLowerCase(Locale.ROOT), uniqueId);
+  }
+
+  /**
+   * Resolves the unique id of a player that was seen before.
+   *
+   * @param username the username of the player, ignoring its case
+   * @return the unique id or {@code null} if the player was not seen yet
+   */
+  public synchronized @Nullable UUID resolve(@NotNull String username) {
+    return this.uniqueIds.get(username.toLowerCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.registry;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Describes which players a published edit of the registry affects, by the original names and
+ * unique ids of every tag that was added, changed or removed.
+ */
+public final class NameTagChange {
+
+  private final NameTagSnapshot snapshot;
+  private final Set<String> names;
+  private final Set<UUID> uniqueIds;
+  private final boolean patterns;
+
+  private NameTagChange(
+      NameTagSnapshot snapshot,
+      Set<String> names,
+      Set<UUID> uniqueIds,
+      boolean patterns
+  ) {
+    this.snapshot = snapshot;
+    this.names = names;
+    this.uniqueIds = uniqueIds;
+    this.patterns = patterns;
+  }
+
+  /**
+   * Returns the snapshot that was published with the change.
+   *
+   * @return the published snapshot
+   */
+  public @NotNull NameTagSnapshot snapshot() {
+    return this.snapshot;
+  }
+
+  /**
+   * Checks whether the tag of the given player may have changed.
+   *
+   * @param userName the name of the player
+   * @param uniqueId the unique id of the player
+   * @return whether the player is affected by the change
+   */
+  public boolean affects(@NotNull String userName, @Nullable UUID uniqueId) {
+    return this.patterns
+        || this.names.contains(userName.toLowerCase(Locale.ROOT))
+        || (uniqueId != null && this.uniqueIds.contains(uniqueId));
+  }
+
+  /**
+   * Returns whether a pattern tag was changed, which may affect any player.
+   *
+   * @return whether a pattern tag was changed
+   */
+  public boolean affectsPatterns() {
+    return this.patterns;
+  }
+
+  public @NotNull Set<String> names() {
+    return Collections.unmodifiableSet(this.names);
+  }
+
+  static final class Builder {
+
+    private final Set<String> names = new HashSet<>();
+    private final Set<UUID> uniqueIds = new HashSet<>();
+    private boolean patterns;
+
+    void add(@NotNull String originalName, @Nullable CustomNameTag customNameTag) {
+      this.names.add(originalName.toLowerCase(Locale.ROOT));
+      if (customNameTag != null && customNameTag.isPattern()) {
+        this.patterns = true;
+      }
+
+      if (customNameTag != null && customNameTag.getUniqueId() != null) {
+        this.uniqueIds.add(customNameTag.getUniqueId());
+      }
+    }
+
+    NameTagChange build(NameTagSnapshot snapshot) {
+      return new NameTagChange(snapshot, this.names, this.uniqueIds, this.patterns);
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.registry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.CustomNameTagsConfiguration;
+import net.labymod.addons.customnametags.store.ChangeBatch;
+import net.labymod.addons.customnametags.store.NameTagStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the custom name tags as immutable snapshots. Readers get the current snapshot through a
+ * single volatile read and never lock, writers apply their changes to a copy and publish it as a
+ * whole.
+ */
+public final class NameTagRegistry {
+
+  private final CustomNameTagsConfiguration configuration;
+  private final NameTagStore store;
+  private final Object writeLock = new Object();
+  private final List<Consumer<NameTagChange>> changeListeners = new CopyOnWriteArrayList<>();
+
+  private volatile NameTagSnapshot snapshot;
+
+  /**
+   * Creates a registry with the given tags.
+   *
+   * @param configuration the configuration, the tags are only stored in it if there is no store
+   * @param store         the store edits are persisted to or {@code null} if it is unavailable
+   * @param tags          the initial tags by their original name
+   */
+  public NameTagRegistry(
+      @NotNull CustomNameTagsConfiguration configuration,
+      @Nullable NameTagStore store,
+      @NotNull Map<String, CustomNameTag> tags
+  ) {
+    this.configuration = configuration;
+    this.store = store;
+    this.snapshot = new NameTagSnapshot(0, new HashMap<>(tags), new HashMap<>());
+    this.snapshot.compilePatterns();
+  }
+
+  public @NotNull NameTagSnapshot snapshot() {
+    return this.snapshot;
+  }
+
+  /**
+   * Applies a batch of changes and publishes them as one new snapshot. Readers either see all of
+   * the changes or none of them.
+   *
+   * @param changes the changes to apply
+   * @return the published snapshot
+   */
+  public @NotNull NameTagSnapshot edit(@NotNull Consumer<Editor> changes) {
+    NameTagSnapshot snapshot;
+    NameTagChange change;
+    synchronized (this.writeLock) {
+      NameTagSnapshot current = this.snapshot;
+      Editor editor = new Editor(new HashMap<>(current.tags()));
+      changes.accept(editor);
+      if (!editor.changed) {
+        return current;
+      }
+
+      snapshot = new NameTagSnapshot(current.version() + 1, editor.tags, current.sharedTags());
+      snapshot.compilePatterns();
+      this.snapshot = snapshot;
+      if (this.store == null || !this.store.commit(editor.batch, snapshot.tags())) {
+        // A copy, the configuration must not share the map of the published snapshot
+        this.configuration.setCustomTags(new HashMap<>(editor.tags));
+      } else if (!this.configuration.getCustomTags().isEmpty()) {
+        // The store is complete again, the older fallback would replace it on the next start
+        this.configuration.setCustomTags(new HashMap<>());
+      }
+
+      change = editor.change.build(snapshot);
+    }
+
+    this.notifyChangeListeners(change);
+    return snapshot;
+  }
+
+  /**
+   * Applies a difference of the shared tags and publishes it as one new snapshot. Shared tags are
+   * never persisted.
+   *
+   * @param changedTags  the added or changed shared tags by their lower case original name
+   * @param removedNames the lower case original names of the removed shared tags
+   * @return the published snapshot
+   */
+  public @NotNull NameTagSnapshot updateSharedTags(
+      @NotNull Map<String, CustomNameTag> changedTags,
+      @NotNull Collection<String> removedNames
+  ) {
+    if (changedTags.isEmpty() && removedNames.isEmpty()) {
+      return this.snapshot;
+    }
+
+    NameTagSnapshot snapshot;
+    NameTagChange change;
+    synchronized (this.writeLock) {
+      NameTagSnapshot current = this.snapshot;
+      Map<String, CustomNameTag> sharedTags = new HashMap<>(current.sharedTags());
+      NameTagChange.Builder builder = new NameTagChange.Builder();
+      for (String name : removedNames) {
+        CustomNameTag removedTag = sharedTags.remove(name);
+        if (removedTag != null) {
+          builder.add(name, removedTag);
+        }
+      }
+
+      for (Map.Entry<String, CustomNameTag> entry : changedTags.entrySet()) {
+        CustomNameTag replacedTag = sharedTags.put(entry.getKey(), entry.getValue());
+        builder.add(entry.getKey(), replacedTag);
+        builder.add(entry.getKey(), entry.getValue());
+      }
+
+      snapshot = new NameTagSnapshot(current.version() + 1, current.tags(), sharedTags);
+      snapshot.compilePatterns();
+      this.snapshot = snapshot;
+      change = builder.build(snapshot);
+    }
+
+    this.notifyChangeListeners(change);
+    return snapshot;
+  }
+
+  /**
+   * Closes the store, waiting for a running compaction to finish.
+   */
+  public void close() {
+    if (this.store != null) {
+      this.store.close();
+    }
+  }
+
+  /**
+   * Registers a listener that is notified after every published edit, on the thread that made the
+   * edit.
+   *
+   * @param changeListener the listener to notify
+   */
+  public void addChangeListener(@NotNull Consumer<NameTagChange> changeListener) {
+    this.changeListeners.add(changeListener);
+  }
+
+  private void notifyChangeListeners(NameTagChange change) {
+    // Outside of the lock, listeners may refresh the player list which reads the registry
+    for (Consumer<NameTagChange> changeListener : this.changeListeners) {
+      changeListener.accept(change);
+    }
+  }
+
+  /**
+   * Collects the changes of a single {@link #edit(Consumer)} call.
+   */
+  public static final class Editor {
+
+    private final Map<String, CustomNameTag> tags;
+    private final ChangeBatch batch = new ChangeBatch();
+    private final NameTagChange.Builder change = new NameTagChange.Builder();
+    private boolean changed;
+
+    private Editor(Map<String, CustomNameTag> tags) {
+      this.tags = tags;
+    }
+
+    /**
+     * Adds or replaces a custom name tag.
+     *
+     * @param previousName  the original name the tag was stored under before, may be the same
+     * @param customNameTag the tag to store
+     * @return this editor
+     */
+    public Editor put(@NotNull String previousName, @NotNull CustomNameTag customNameTag) {
+      if (!previousName.equals(customNameTag.getOriginalName())) {
+        CustomNameTag previousTag = this.tags.remove(previousName);
+        if (previousTag != null) {
+          this.batch.remove(previousName);
+          this.change.add(previousName, previousTag);
+        }
+      }
+
+      CustomNameTag replacedTag = this.tags.put(customNameTag.getOriginalName(), customNameTag);
+      this.batch.put(customNameTag);
+      this.change.add(customNameTag.getOriginalName(), replacedTag);
+      this.change.add(customNameTag.getOriginalName(), customNameTag);
+      this.changed = true;
+      return this;
+    }
+
+    public Editor put(@NotNull CustomNameTag customNameTag) {
+      return this.put(customNameTag.getOriginalName(), customNameTag);
+    }
+
+    public Editor remove(@NotNull String originalName) {
+      CustomNameTag removedTag = this.tags.remove(originalName);
+      if (removedTag != null) {
+        this.batch.remove(originalName);
+        this.change.add(originalName, removedTag);
+        this.changed = true;
+      }
+
+      return this;
+    }
+
+    public Editor removeIf(@NotNull Predicate<CustomNameTag> filter) {
+      Iterator<Map.Entry<String, CustomNameTag>> iterator = this.tags.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, CustomNameTag> entry = iterator.next();
+        if (filter.test(entry.getValue())) {
+          iterator.remove();
+          this.batch.remove(entry.getKey());
+          this.change.add(entry.getKey(), entry.getValue());
+          this.changed = true;
+        }
+      }
+
+      return this;
+    }
+
+    public CustomNameTag get(@NotNull String originalName) {
+      return this.tags.get(originalName);
+    }
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.registry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.matcher.CombinedNameMatcher;
+import net.labymod.addons.customnametags.matcher.NameAutomaton;
+import net.labymod.addons.customnametags.matcher.NamePrefilter;
+import net.labymod.addons.customnametags.matcher.NameTagSearchIndex;
+import net.labymod.addons.customnametags.matcher.PatternAutomaton;
+import net.labymod.addons.customnametags.matcher.SuffixTrie;
+import net.labymod.addons.customnametags.matcher.TagIndex;
+import net.labymod.addons.customnametags.matcher.UniqueIdIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable state of all custom name tags. Structures derived from the tags are built lazily
+ * on first use and then shared by everyone reading the same snapshot.
+ *
+ * <p>Besides the own tags of the user, a snapshot holds the shared tags that are loaded from
+ * files. Shared tags are never persisted and an own tag with the same name always wins.
+ */
+public final class NameTagSnapshot {
+
+  private final long version;
+  private final Map<String, CustomNameTag> tags;
+  private final Map<String, CustomNameTag> sharedTags;
+  private final Map<String, CustomNameTag> effectiveTags;
+  private final NameTagSnapshot[] contextSnapshots
+      = new NameTagSnapshot[NameTagContext.values().length];
+
+  private volatile TagIndex tagIndex;
+  private volatile UniqueIdIndex uniqueIdIndex;
+  private volatile NameAutomaton automaton;
+  private volatile PatternAutomaton patternAutomaton;
+  private volatile CombinedNameMatcher matcher;
+  private volatile NamePrefilter prefilter;
+  private volatile SuffixTrie suffixTrie;
+  private volatile NameTagSearchIndex searchIndex;
+
+  NameTagSnapshot(
+      long version,
+      Map<String, CustomNameTag> tags,
+      Map<String, CustomNameTag> sharedTags
+  ) {
+    this.version = version;
+    this.tags = Collections.unmodifiableMap(tags);
+    this.sharedTags = Collections.unmodifiableMap(sharedTags);
+    this.effectiveTags = sharedTags.isEmpty() ? this.tags : merge(tags, sharedTags);
+  }
+
+  private NameTagSnapshot(long version, Map<String, CustomNameTag> effectiveTags) {
+    this.version = version;
+    this.tags = effectiveTags;
+    this.sharedTags = Collections.emptyMap();
+    this.effectiveTags = effectiveTags;
+  }
+
+  /**
+   * Returns the version of this snapshot. Every published snapshot has a higher version than the
+   * one before.
+   *
+   * @return the version of this snapshot
+   */
+  public long version() {
+    return this.version;
+  }
+
+  /**
+   * Returns the own tags of the user, which are the ones that can be edited and are persisted.
+   *
+   * @return the own tags by their original name
+   */
+  public @NotNull Map<String, CustomNameTag> tags() {
+    return this.tags;
+  }
+
+  /**
+   * Returns the tags that are loaded from shared files.
+   *
+   * @return the shared tags by their lower case original name
+   */
+  public @NotNull Map<String, CustomNameTag> sharedTags() {
+    return this.sharedTags;
+  }
+
+  /**
+   * Returns every tag that applies, the own tags and the shared tags that are not overridden.
+   *
+   * @return all applying tags
+   */
+  public @NotNull Collection<CustomNameTag> values() {
+    return this.effectiveTags.values();
+  }
+
+  /**
+   * Returns the tags that would apply if the own tags were replaced by the given ones. The shared
+   * tags are merged in like for a published snapshot.
+   *
+   * @param tags the own tags by their original name
+   * @return all tags that would apply
+   */
+  public @NotNull Collection<CustomNameTag> valuesWith(@NotNull Map<String, CustomNameTag> tags) {
+    return (this.sharedTags.isEmpty() ? tags : merge(tags, this.sharedTags)).values();
+  }
+
+  /**
+   * Returns the snapshot of the tags that are enabled in the given context, so the structures
+   * derived from it only contain names that are replaced in this context. It has the same version
+   * as this snapshot and its own tags are the applying tags of the context.
+   *
+   * @param context the context to filter the tags for
+   * @return this snapshot if every tag is enabled in the context, otherwise a filtered snapshot
+   */
+  public @NotNull NameTagSnapshot forContext(@NotNull NameTagContext context) {
+    NameTagSnapshot contextSnapshot = this.contextSnapshots[context.ordinal()];
+    if (contextSnapshot == null) {
+      contextSnapshot = this.filter(context);
+      this.contextSnapshots[context.ordinal()] = contextSnapshot;
+    }
+
+    return contextSnapshot;
+  }
+
+  /**
+   * Looks up the custom name tag of the given player name, ignoring its case.
+   *
+   * @param name the name of the player
+   * @return the custom name tag or {@code null} if the player has none
+   */
+  public @Nullable CustomNameTag get(@NotNull String name) {
+    TagIndex tagIndex = this.tagIndex;
+    if (tagIndex == null) {
+      tagIndex = TagIndex.of(this.values());
+      this.tagIndex = tagIndex;
+    }
+
+    return tagIndex.get(name);
+  }
+
+  /**
+   * Looks up the custom name tag that is bound to the unique id of a player.
+   *
+   * @param uniqueId the unique id of the player
+   * @return the bound custom name tag or {@code null} if no tag is bound to the player
+   */
+  public @Nullable CustomNameTag get(@NotNull UUID uniqueId) {
+    UniqueIdIndex uniqueIdIndex = this.uniqueIdIndex;
+    if (uniqueIdIndex == null) {
+      uniqueIdIndex = UniqueIdIndex.of(this.values());
+      this.uniqueIdIndex = uniqueIdIndex;
+    }
+
+    return uniqueIdIndex.get(uniqueId);
+  }
+
+  /**
+   * Looks up the custom name tag of a player, preferring a tag bound to the unique id of the player
+   * over one that matches the name. Tags that are bound to another player are never returned.
+   *
+   * @param uniqueId the unique id of the player
+   * @param name     the current name of the player
+   * @return the custom name tag or {@code null} if the player has none
+   */
+  public @Nullable CustomNameTag get(@NotNull UUID uniqueId, @NotNull String name) {
+    CustomNameTag customNameTag = this.get(uniqueId);
+    if (customNameTag != null) {
+      return customNameTag;
+    }
+
+    customNameTag = this.get(name);
+    if (customNameTag == null || customNameTag.getUniqueId() == null) {
+      return customNameTag;
+    }
+
+    return null;
+  }
+
+  public @NotNull NameAutomaton automaton() {
+    NameAutomaton automaton = this.automaton;
+    if (automaton == null) {
+      automaton = NameAutomaton.compile(this.values());
+      this.automaton = automaton;
+    }
+
+    return automaton;
+  }
+
+  /**
+   * Compiles the pattern automata of this snapshot and of its context snapshots. The automaton
+   * over all patterns may have many thousand states, so it is built before the snapshot is
+   * published rather than on the first lookup inside a frame.
+   */
+  void compilePatterns() {
+    for (CustomNameTag customNameTag : this.values()) {
+      if (customNameTag.isPattern() && customNameTag.isEnabled()) {
+        for (NameTagContext context : NameTagContext.values()) {
+          this.forContext(context).patternAutomaton();
+        }
+
+        return;
+      }
+    }
+  }
+
+  public @NotNull PatternAutomaton patternAutomaton() {
+    PatternAutomaton patternAutomaton = this.patternAutomaton;
+    if (patternAutomaton == null) {
+      patternAutomaton = PatternAutomaton.compile(this.values());
+      this.patternAutomaton = patternAutomaton;
+    }
+
+    return patternAutomaton;
+  }
+
+  /**
+   * Returns a matcher for the names of both literal and pattern tags.
+   *
+   * @return the matcher of all enabled tags
+   */
+  public @NotNull CombinedNameMatcher matcher() {
+    CombinedNameMatcher matcher = this.matcher;
+    if (matcher == null) {
+      matcher = new CombinedNameMatcher(this.automaton(), this.patternAutomaton());
+      this.matcher = matcher;
+    }
+
+    return matcher;
+  }
+
+  public @NotNull NamePrefilter prefilter() {
+    NamePrefilter prefilter = this.prefilter;
+    if (prefilter == null) {
+      prefilter = NamePrefilter.of(this.values());
+      this.prefilter = prefilter;
+    }
+
+    return prefilter;
+  }
+
+  public @NotNull SuffixTrie suffixTrie() {
+    SuffixTrie suffixTrie = this.suffixTrie;
+    if (suffixTrie == null) {
+      suffixTrie = SuffixTrie.compile(this.values());
+      this.suffixTrie = suffixTrie;
+    }
+
+    return suffixTrie;
+  }
+
+  public @NotNull NameTagSearchIndex searchIndex() {
+    NameTagSearchIndex searchIndex = this.searchIndex;
+    if (searchIndex == null) {
+      searchIndex = NameTagSearchIndex.of(this.tags.values()); // Only own tags can be edited
+      this.searchIndex = searchIndex;
+    }
+
+    return searchIndex;
+  }
+
+  private NameTagSnapshot filter(NameTagContext context) {
+    Map<String, CustomNameTag> contextTags = null;
+    for (Map.Entry<String, CustomNameTag> entry : this.effectiveTags.entrySet()) {
+      if (entry.getValue().isEnabledIn(context)) {
+        continue;
+      }
+
+      if (contextTags == null) {
+        contextTags = new HashMap<>(this.effectiveTags);
+      }
+
+      // Removed after merging, a disabled own tag still hides the shared tag of the same name
+      contextTags.remove(entry.getKey());
+    }
+
+    if (contextTags == null) {
+      return this;
+    }
+
+    return new NameTagSnapshot(this.version, Collections.unmodifiableMap(contextTags));
+  }
+
+  private static Map<String, CustomNameTag> merge(
+      Map<String, CustomNameTag> tags,
+      Map<String, CustomNameTag> sharedTags
+  ) {
+    Set<String> ownNames = new HashSet<>(tags.size() * 2);
+    for (String name : tags.keySet()) {
+      ownNames.add(name.toLowerCase(Locale.ROOT));
+    }
+
+    Map<String, CustomNameTag> effectiveTags = new HashMap<>(tags);
+    for (Map.Entry<String, CustomNameTag> entry : sharedTags.entrySet()) {
+      if (!ownNames.contains(entry.getKey())) {
+        effectiveTags.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    return Collections.unmodifiableMap(effectiveTags);
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.replace;
+
+import java.util.Arrays;
+import java.util.List;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.component.TranslatableComponent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The plain text of a component tree in render order, together with the text component every
+ * range of it comes from. Names are matched against this text once, so a name that is split over
+ * several components is found as well.
+ *
+ * <p>The text is a view over the texts of the components and is never copied, so matching a
+ * tree that contains no name does not allocate. Texts that are not rendered next to each other,
+ * like the arguments of a translation, are separated by a segment without a component that
+ * consists of a character which can not be part of a name. The instance is reused for every tree
+ * and is not thread-safe.
+ */
+final class FlatText implements CharSequence {
+
+  private static final char BOUNDARY = '\n';
+
+  private TextComponent[] nodes = new TextComponent[16];
+  private String[] texts = new String[16];
+  private int[] starts = new int[16];
+  private int size;
+  private int length;
+
+  // The segment of the last access, matchers read the text front to back
+  private int cursor;
+
+  /**
+   * Flattens the component tree. The returned view is only valid until the next call.
+   *
+   * @param component the root of the tree
+   * @return the plain text of the tree
+   */
+  @NotNull CharSequence build(@NotNull Component component) {
+    this.clear();
+    this.append(component);
+    return this;
+  }
+
+  /**
+   * @return the number of segments, including the boundaries between unrelated texts
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * @return the text component of the segment or {@code null} if the segment is a boundary
+   */
+  TextComponent node(int index) {
+    return this.nodes[index];
+  }
+
+  int start(int index) {
+    return this.starts[index];
+  }
+
+  int end(int index) {
+    return index + 1 < this.size ? this.starts[index + 1] : this.length;
+  }
+
+  /**
+   * @return the text of the segment as it was when the tree was flattened
+   */
+  String text(int index) {
+    return this.texts[index];
+  }
+
+  /**
+   * Releases the components of the last tree.
+   */
+  void clear() {
+    Arrays.fill(this.nodes, 0, this.size, null);
+    Arrays.fill(this.texts, 0, this.size, null);
+    this.size = 0;
+    this.length = 0;
+    this.cursor = 0;
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= this.length) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + this.length);
+    }
+
+    int segment = this.cursor;
+    if (index < this.starts[segment] || index >= this.end(segment)) {
+      segment = segment + 1 < this.size && index >= this.starts[segment + 1]
+          && index < this.end(segment + 1) ? segment + 1 : this.segmentOf(index);
+      this.cursor = segment;
+    }
+
+    String text = this.texts[segment];
+    return text == null ? BOUNDARY : text.charAt(index - this.starts[segment]);
+  }
+
+  @Override
+  public @NotNull CharSequence subSequence(int start, int end) {
+    return this.toString().substring(start, end);
+  }
+
+  @Override
+  public @NotNull String toString() {
+    StringBuilder builder = new StringBuilder(this.length);
+    for (int i = 0; i < this.size; i++) {
+      String text = this.texts[i];
+      if (text == null) {
+        builder.append(BOUNDARY);
+      } else {
+        builder.append(text);
+      }
+    }
+
+    return builder.toString();
+  }
+
+  private int segmentOf(int index) {
+    int low = 0;
+    int high = this.size - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (this.starts[middle] <= index) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return low;
+  }
+
+  private void append(Component component) {
+    if (component instanceof TextComponent textComponent) {
+      String text = textComponent.getText();
+      if (!text.isEmpty()) {
+        this.addSegment(textComponent, text);
+      }
+    } else {
+      // The rendered text of other components is not known here
+      this.addSegment(null, null);
+      if (component instanceof TranslatableComponent translatableComponent) {
+        List<Component> arguments = translatableComponent.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+          this.append(arguments.get(i));
+          this.addSegment(null, null);
+        }
+      }
+    }
+
+    // Indexed loops, iterators would allocate for every visited component
+    List<Component> children = component.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      this.append(children.get(i));
+    }
+  }
+
+  private void addSegment(TextComponent component, String text) {
+    if (this.size == this.nodes.length) {
+      this.nodes = Arrays.copyOf(this.nodes, this.size << 1);
+      this.texts = Arrays.copyOf(this.texts, this.size << 1);
+      this.starts = Arrays.copyOf(this.starts, this.size << 1);
+    }
+
+    this.nodes[this.size] = component;
+    this.texts[this.size] = text;
+    this.starts[this.size] = this.length;
+    this.size++;
+    this.length += text == null ? 1 : text.length();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.replace;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Splits {@code &}-formatted custom names by their visible characters, so that a name which
+ * replaces text spread over several components can be spread over the same components.
+ */
+final class LegacyText {
+
+  private static final char FORMAT_CHARACTER = '&';
+  private static final String FORMAT_CODES = "0123456789abcdefklmnor";
+
+  private LegacyText() {
+  }
+
+  static int visibleLength(@NotNull String text) {
+    int length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      if (isFormatCode(text, i)) {
+        i++;
+      } else {
+        length++;
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Cuts a range of visible characters out of the text. The format codes in front of the range
+   * are kept, so the range is rendered exactly like it is as part of the whole text.
+   *
+   * @param text the {@code &}-formatted text
+   * @param from the first visible character of the range
+   * @param to   the end of the range, exclusive
+   * @return the {@code &}-formatted range
+   */
+  static @NotNull String slice(@NotNull String text, int from, int to) {
+    StringBuilder builder = new StringBuilder(text.length());
+    int visible = 0;
+    for (int i = 0; i < text.length() && visible < to; i++) {
+      if (isFormatCode(text, i)) {
+        builder.append(text, i, i + 2);
+        i++;
+        continue;
+      }
+
+      if (visible >= from) {
+        builder.append(text.charAt(i));
+      }
+
+      visible++;
+    }
+
+    return builder.toString();
+  }
+
+  private static boolean isFormatCode(String text, int index) {
+    return text.charAt(index) == FORMAT_CHARACTER && index + 1 < text.length()
+        && FORMAT_CODES.indexOf(Character.toLowerCase(text.charAt(index + 1))) != -1;
+  }
+}
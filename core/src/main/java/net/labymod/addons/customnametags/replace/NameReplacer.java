@@ -0,0 +1,169 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.replace;
+
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.cache.DisplayNamePool;
+import net.labymod.addons.customnametags.matcher.MatchBuffer;
+import net.labymod.addons.customnametags.matcher.NameMatcher;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.component.format.Style;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Replaces names in a component tree with their custom names. The plain text of the tree is built
+ * once and matched in a single scan, the matches are then projected back onto the text components
+ * they cover. A name may therefore span several components, for example if its color changes in
+ * the middle. Only the components that contain a match are rewritten, and a tree without a match
+ * is scanned without any allocation.
+ *
+ * <p>A name that spans several components is replaced in each of them: every component receives
+ * the share of the visible characters of the custom name that corresponds to its share of the
+ * original name, in its own style. The format codes of the custom name still take precedence, so
+ * a colored custom name looks the same as if it replaced the name in a single component.
+ *
+ * <p>The replacer keeps a match buffer and is therefore not thread-safe, it is only used from
+ * the game thread.
+ */
+public final class NameReplacer {
+
+  private final MatchBuffer buffer = new MatchBuffer();
+  private final FlatText flatText = new FlatText();
+
+  /**
+   * Replaces every name the matcher finds in the component tree.
+   *
+   * @param component the component to replace the names in
+   * @param matcher   the matcher for the names
+   * @return whether at least one name was replaced
+   */
+  public boolean replace(@NotNull Component component, @NotNull NameMatcher matcher) {
+    FlatText flatText = this.flatText;
+    MatchBuffer buffer = this.buffer;
+    int matches = matcher.findMatches(flatText.build(component), buffer);
+
+    int match = 0;
+    for (int node = 0; node < flatText.size() && match < matches; node++) {
+      TextComponent textComponent = flatText.node(node);
+      if (textComponent == null) {
+        continue; // A boundary, names never contain it
+      }
+
+      int nodeStart = flatText.start(node);
+      int nodeEnd = flatText.end(node);
+      while (match < matches && buffer.end(match) <= nodeStart) {
+        match++;
+      }
+
+      if (match < matches && buffer.start(match) < nodeEnd) {
+        this.replaceText(textComponent, flatText.text(node), nodeStart, nodeEnd, match, matches);
+      }
+    }
+
+    buffer.clear();
+    flatText.clear();
+    return matches != 0;
+  }
+
+  /**
+   * Checks whether the plain text of the component tree may contain a name of the matcher.
+   *
+   * @param component the component to check
+   * @param matcher   the matcher for the names
+   * @return whether a name may be replaced in the component
+   */
+  public boolean mayContain(@NotNull Component component, @NotNull NameMatcher matcher) {
+    boolean contains = matcher.containsAny(this.flatText.build(component));
+    this.flatText.clear();
+    return contains;
+  }
+
+  /**
+   * Rewrites a single text component. Names that lie completely in this component are inserted as
+   * a whole, of names that span several components only the part of this component is inserted.
+   */
+  private void replaceText(
+      TextComponent component,
+      String text,
+      int nodeStart,
+      int nodeEnd,
+      int firstMatch,
+      int matches
+  ) {
+    MatchBuffer buffer = this.buffer;
+    Style style = component.style();
+    component.text("");
+
+    int position = nodeStart;
+    int childIndex = 0;
+    for (int i = firstMatch; i < matches && buffer.start(i) < nodeEnd; i++) {
+      int start = buffer.start(i);
+      int end = buffer.end(i);
+      int from = Math.max(start, nodeStart);
+      int to = Math.min(end, nodeEnd);
+      if (from > position) {
+        component.append(childIndex++, Component.text(
+            text.substring(position - nodeStart, from - nodeStart),
+            style
+        ));
+      }
+
+      Component customName = start >= nodeStart && end <= nodeEnd
+          ? this.customName(buffer.tag(i), style)
+          : this.customNamePart(buffer.tag(i), style, from - start, to - start, end - start);
+      if (customName != null) {
+        component.append(childIndex++, customName);
+      }
+
+      position = to;
+    }
+
+    if (position < nodeEnd) {
+      component.append(childIndex, Component.text(text.substring(position - nodeStart), style));
+    }
+  }
+
+  private Component customName(CustomNameTag customNameTag, Style style) {
+    return DisplayNamePool.global().instantiate(customNameTag.getCustomName(), style);
+  }
+
+  /**
+   * Creates the part of a custom name that replaces the characters {@code from} to {@code to} of
+   * an original name with the given length. The parts of all components add up to the whole
+   * custom name, a part may be empty if the custom name is shorter than the original one.
+   */
+  private @Nullable Component customNamePart(
+      CustomNameTag customNameTag,
+      Style style,
+      int from,
+      int to,
+      int length
+  ) {
+    String customName = customNameTag.getCustomName();
+    int visibleLength = LegacyText.visibleLength(customName);
+    int visibleFrom = visibleLength * from / length;
+    int visibleTo = visibleLength * to / length;
+    if (visibleFrom == visibleTo) {
+      return null;
+    }
+
+    String part = LegacyText.slice(customName, visibleFrom, visibleTo);
+    return DisplayNamePool.global().instantiate(part, style);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The ordered changes of a single registry edit, as they are appended to the change log.
+ */
+public final class ChangeBatch {
+
+  private final List<String> removedNames = new ArrayList<>();
+  private final List<CustomNameTag> storedTags = new ArrayList<>();
+
+  public void put(@NotNull CustomNameTag customNameTag) {
+    this.removedNames.add(null);
+    this.storedTags.add(customNameTag);
+  }
+
+  public void remove(@NotNull String originalName) {
+    this.removedNames.add(originalName);
+    this.storedTags.add(null);
+  }
+
+  public int size() {
+    return this.storedTags.size();
+  }
+
+  public boolean isEmpty() {
+    return this.storedTags.isEmpty();
+  }
+
+  /**
+   * Returns the tag stored by the change at the given index.
+   *
+   * @param index the index of the change
+   * @return the stored tag or {@code null} if the change removes a tag
+   */
+  CustomNameTag storedTag(int index) {
+    return this.storedTags.get(index);
+  }
+
+  String removedName(int index) {
+    return this.removedNames.get(index);
+  }
+}
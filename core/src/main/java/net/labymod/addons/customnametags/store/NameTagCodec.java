@@ -0,0 +1,152 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.store;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.background.NameTagBackground;
+import net.labymod.addons.customnametags.background.NameTagBackground.Mode;
+
+/**
+ * The binary encoding of custom name tags shared by the snapshot and the change log.
+ */
+final class NameTagCodec {
+
+  private static final int ENABLED = 1;
+  private static final int REPLACE_SCOREBOARD = 1 << 1;
+  private static final int UNIQUE_ID = 1 << 2;
+  private static final int BACKGROUND = 1 << 3;
+  private static final int PATTERN = 1 << 4;
+  private static final int DISABLED_CONTEXTS = 1 << 5;
+
+  private static final Mode[] BACKGROUND_MODES = Mode.values();
+
+  private NameTagCodec() {
+  }
+
+  static void writeTag(DataOutput output, CustomNameTag customNameTag) throws IOException {
+    writeString(output, customNameTag.getOriginalName());
+    writeString(output, customNameTag.getCustomName());
+
+    UUID uniqueId = customNameTag.getUniqueId();
+    int flags = 0;
+    if (customNameTag.isEnabled()) {
+      flags |= ENABLED;
+    }
+
+    if (customNameTag.isReplaceScoreboard()) {
+      flags |= REPLACE_SCOREBOARD;
+    }
+
+    if (uniqueId != null) {
+      flags |= UNIQUE_ID;
+    }
+
+    if (customNameTag.isPattern()) {
+      flags |= PATTERN;
+    }
+
+    NameTagBackground background = customNameTag.getBackground();
+    if (background != null) {
+      flags |= BACKGROUND;
+    }
+
+    int disabledContexts = customNameTag.getDisabledContexts();
+    if (disabledContexts != 0) {
+      flags |= DISABLED_CONTEXTS;
+    }
+
+    output.writeByte(flags);
+    if (uniqueId != null) {
+      output.writeLong(uniqueId.getMostSignificantBits());
+      output.writeLong(uniqueId.getLeastSignificantBits());
+    }
+
+    if (background != null) {
+      output.writeByte(background.getMode().ordinal());
+      output.writeInt(background.getColor());
+    }
+
+    if (disabledContexts != 0) {
+      output.writeByte(disabledContexts);
+    }
+  }
+
+  static CustomNameTag readTag(ByteBuffer buffer) throws IOException {
+    String originalName = readString(buffer);
+    String customName = readString(buffer);
+    int flags = buffer.get();
+    UUID uniqueId = null;
+    if ((flags & UNIQUE_ID) != 0) {
+      uniqueId = new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    CustomNameTag customNameTag = CustomNameTag.of(
+        originalName,
+        customName,
+        (flags & ENABLED) != 0,
+        (flags & REPLACE_SCOREBOARD) != 0,
+        uniqueId
+    );
+    customNameTag.setPattern((flags & PATTERN) != 0);
+
+    if ((flags & BACKGROUND) != 0) {
+      int mode = buffer.get();
+      int color = buffer.getInt();
+      if (mode < 0 || mode >= BACKGROUND_MODES.length) {
+        throw new IOException("Invalid background mode " + mode);
+      }
+
+      customNameTag.setBackground(switch (BACKGROUND_MODES[mode]) {
+        case HIDDEN -> NameTagBackground.hidden();
+        case COLOR -> NameTagBackground.color(color);
+        case CHROMA -> NameTagBackground.chroma(color >>> 24);
+      });
+    }
+
+    if ((flags & DISABLED_CONTEXTS) != 0) {
+      customNameTag.setDisabledContexts(buffer.get());
+    }
+
+    return customNameTag;
+  }
+
+  static void writeString(DataOutput output, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  static String readString(ByteBuffer buffer) throws IOException {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IOException("Invalid string length " + length + " at " + buffer.position());
+    }
+
+    String value = new String(
+        buffer.array(),
+        buffer.arrayOffset() + buffer.position(),
+        length,
+        StandardCharsets.UTF_8
+    );
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+}
@@ -0,0 +1,457 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.store;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.api.util.logging.Logging;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Persists the custom name tags outside of the addon configuration. The tags are stored as a
+ * compact binary snapshot plus an append-only log of the edits made since. Loading reads both
+ * files with one bulk read each, an edit appends one record per change, and once the log grows
+ * as large as the snapshot it is compacted into a new snapshot on a background thread.
+ */
+public final class NameTagStore {
+
+  private static final int SNAPSHOT_MAGIC = 0x434E5453; // CNTS
+  private static final int LOG_MAGIC = 0x434E544C; // CNTL
+  private static final int FORMAT_VERSION = 4; // 2 added name tag backgrounds, 3 pattern tags, 4 contexts
+  private static final int HEADER_SIZE = Integer.BYTES * 2;
+  private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+  private static final int MINIMUM_COMPACTION_RECORDS = 1024;
+  private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+
+  private final Path snapshotPath;
+  private final Path logPath;
+  private final Path compactingLogPath;
+  private final Logging logger;
+  private final Object snapshotLock = new Object();
+  private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(
+      runnable -> {
+        Thread thread = new Thread(runnable, "CustomNameTags Store");
+        thread.setDaemon(true);
+        return thread;
+      }
+  );
+
+  private FileChannel logChannel;
+  private int logRecords;
+  private int snapshotEntries;
+  private boolean compacting;
+  private boolean incomplete; // An append failed, the log misses changes until the next snapshot
+
+  public NameTagStore(@NotNull Path directory, @NotNull Logging logger) {
+    this.snapshotPath = directory.resolve("tags.bin");
+    this.logPath = directory.resolve("tags.log");
+    this.compactingLogPath = directory.resolve("tags.log.old");
+    this.logger = logger;
+  }
+
+  /**
+   * Loads the snapshot and replays the change log on top of it. A log that ends with a torn
+   * record, for example after a crash while appending, is cut off before that record.
+   *
+   * @return the stored tags by their original name
+   * @throws IOException if the files could not be read or the snapshot is corrupt
+   */
+  public synchronized @NotNull Map<String, CustomNameTag> load() throws IOException {
+    Map<String, CustomNameTag> tags = new HashMap<>();
+    if (Files.exists(this.snapshotPath)) {
+      this.readSnapshot(readFully(this.snapshotPath), tags);
+    }
+
+    this.snapshotEntries = tags.size();
+    this.logRecords = 0;
+    boolean interruptedCompaction = Files.exists(this.compactingLogPath);
+    if (interruptedCompaction) {
+      // Older than the current log and never appended to again, a torn tail can be ignored
+      this.replayLog(readFully(this.compactingLogPath), tags);
+    }
+
+    if (Files.exists(this.logPath)) {
+      ByteBuffer log = readFully(this.logPath);
+      int validLength = this.replayLog(log, tags);
+      if (validLength < log.limit()) {
+        this.logger.warn("Discarding " + (log.limit() - validLength)
+            + " bytes of incomplete name tag changes in " + this.logPath);
+        try (FileChannel channel = FileChannel.open(this.logPath, StandardOpenOption.WRITE)) {
+          channel.truncate(validLength);
+        }
+      }
+    }
+
+    if (interruptedCompaction) {
+      this.compact(tags.values());
+    }
+
+    return tags;
+  }
+
+  /**
+   * Persists the changes of a registry edit by appending them to the log. Once the log outgrows the
+   * snapshot, the given tags are written as a new snapshot in the background, so the caller never
+   * waits for more than the append.
+   *
+   * <p>If an earlier append failed, the log misses its changes. The given tags are then written
+   * as a new snapshot instead, and only once that succeeded the store is complete again.
+   *
+   * @param batch the changes in the order they were applied
+   * @param tags  all tags after the changes were applied, they must never be modified afterwards
+   * @return whether all tags up to these changes are persisted
+   */
+  public synchronized boolean commit(
+      @NotNull ChangeBatch batch,
+      @NotNull Map<String, CustomNameTag> tags
+  ) {
+    if (this.incomplete) {
+      return this.recover(tags.values());
+    }
+
+    if (batch.isEmpty()) {
+      return true;
+    }
+
+    try {
+      this.append(batch);
+    } catch (IOException exception) {
+      this.logger.error("Could not persist the custom name tags", exception);
+      this.incomplete = true;
+      return false;
+    }
+
+    int threshold = Math.max(MINIMUM_COMPACTION_RECORDS, this.snapshotEntries);
+    if (this.logRecords > threshold && !this.compacting) {
+      try {
+        this.scheduleCompaction(tags.values());
+      } catch (IOException exception) {
+        this.logger.error("Could not start compacting the custom name tags", exception);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Closes the change log and waits for a running compaction to finish.
+   */
+  public void close() {
+    this.compactionExecutor.shutdown();
+    try {
+      if (!this.compactionExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        this.logger.warn("Compacting the custom name tags did not finish in time");
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+
+    synchronized (this) {
+      try {
+        this.closeLogChannel();
+      } catch (IOException exception) {
+        this.logger.error("Could not close the custom name tag log", exception);
+      }
+    }
+  }
+
+  /**
+   * Replaces the snapshot with the given tags and clears the change log. The new snapshot is
+   * written to a temporary file first and then moved over the old one.
+   *
+   * @param tags all tags to store
+   * @throws IOException if the snapshot could not be written
+   */
+  public synchronized void compact(@NotNull Collection<CustomNameTag> tags) throws IOException {
+    this.writeSnapshot(tags);
+
+    // Replaying the old log over the new snapshot would be harmless, so a crash here loses nothing
+    this.closeLogChannel();
+    Files.deleteIfExists(this.logPath);
+    Files.deleteIfExists(this.compactingLogPath);
+    this.logRecords = 0;
+    this.snapshotEntries = tags.size();
+  }
+
+  private boolean recover(Collection<CustomNameTag> tags) {
+    if (this.compacting) {
+      return false; // The running compaction would replace the snapshot, retried on the next commit
+    }
+
+    try {
+      this.compact(tags);
+    } catch (IOException exception) {
+      this.logger.error("Could not persist the custom name tags", exception);
+      return false;
+    }
+
+    this.incomplete = false;
+    this.logger.info("Persisted the custom name tags again after an earlier failure");
+    return true;
+  }
+
+  /**
+   * Moves the current log aside and writes the snapshot in the background. Edits made meanwhile
+   * are appended to a new log, which stays valid on top of the new snapshot.
+   */
+  private void scheduleCompaction(Collection<CustomNameTag> tags) throws IOException {
+    if (Files.exists(this.compactingLogPath) || this.compactionExecutor.isShutdown()) {
+      return; // A failed compaction is finished on the next load
+    }
+
+    this.closeLogChannel();
+    Files.move(this.logPath, this.compactingLogPath, StandardCopyOption.ATOMIC_MOVE);
+    this.compacting = true;
+    this.logRecords = 0;
+    this.snapshotEntries = tags.size();
+    this.compactionExecutor.execute(() -> {
+      try {
+        this.writeSnapshot(tags);
+        Files.deleteIfExists(this.compactingLogPath);
+      } catch (IOException exception) {
+        this.logger.error("Could not compact the custom name tags", exception);
+      } finally {
+        synchronized (this) {
+          this.compacting = false;
+        }
+      }
+    });
+  }
+
+  private void writeSnapshot(Collection<CustomNameTag> tags) throws IOException {
+    synchronized (this.snapshotLock) { // The startup compaction may overlap a background one
+      Files.createDirectories(this.snapshotPath.getParent());
+      Path temporaryPath = this.snapshotPath.resolveSibling(
+          this.snapshotPath.getFileName() + ".tmp"
+      );
+      try (FileChannel channel = FileChannel.open(
+          temporaryPath,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.WRITE
+      )) {
+        CRC32 checksum = new CRC32();
+        DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+            new BufferedOutputStream(Channels.newOutputStream(channel)),
+            checksum
+        ));
+
+        output.writeInt(SNAPSHOT_MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(tags.size());
+        for (CustomNameTag customNameTag : tags) {
+          NameTagCodec.writeTag(output, customNameTag);
+        }
+
+        output.writeInt((int) checksum.getValue());
+        output.flush();
+        channel.force(true);
+      }
+
+      Files.move(
+          temporaryPath,
+          this.snapshotPath,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE
+      );
+    }
+  }
+
+  private void closeLogChannel() throws IOException {
+    if (this.logChannel != null) {
+      this.logChannel.close();
+      this.logChannel = null;
+    }
+  }
+
+  private void append(ChangeBatch batch) throws IOException {
+    FileChannel channel = this.logChannel();
+
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    DataOutputStream recordOutput = new DataOutputStream(records);
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream payloadOutput = new DataOutputStream(payload);
+    CRC32 checksum = new CRC32();
+    for (int i = 0; i < batch.size(); i++) {
+      payload.reset();
+      CustomNameTag storedTag = batch.storedTag(i);
+      if (storedTag != null) {
+        payloadOutput.writeByte(PUT);
+        NameTagCodec.writeTag(payloadOutput, storedTag);
+      } else {
+        payloadOutput.writeByte(REMOVE);
+        NameTagCodec.writeString(payloadOutput, batch.removedName(i));
+      }
+
+      byte[] bytes = payload.toByteArray();
+      checksum.reset();
+      checksum.update(bytes);
+      recordOutput.writeInt(bytes.length);
+      recordOutput.writeInt((int) checksum.getValue());
+      recordOutput.write(bytes);
+    }
+
+    // The whole batch is written at once, a torn write is detected by the checksum on load
+    ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+
+    this.logRecords += batch.size();
+  }
+
+  private FileChannel logChannel() throws IOException {
+    if (this.logChannel != null) {
+      return this.logChannel;
+    }
+
+    Files.createDirectories(this.logPath.getParent());
+    FileChannel channel = FileChannel.open(
+        this.logPath,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND
+    );
+
+    if (channel.size() == 0) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(LOG_MAGIC).putInt(FORMAT_VERSION).flip();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+    }
+
+    this.logChannel = channel;
+    return channel;
+  }
+
+  private void readSnapshot(ByteBuffer buffer, Map<String, CustomNameTag> tags)
+      throws IOException {
+    if (buffer.limit() < HEADER_SIZE + Integer.BYTES * 2
+        || buffer.getInt(0) != SNAPSHOT_MAGIC
+        || !isSupportedVersion(buffer.getInt(Integer.BYTES))) {
+      throw new IOException("Unknown name tag snapshot format in " + this.snapshotPath);
+    }
+
+    int checksumPosition = buffer.limit() - Integer.BYTES;
+    CRC32 checksum = new CRC32();
+    checksum.update(buffer.array(), buffer.arrayOffset(), checksumPosition);
+    if ((int) checksum.getValue() != buffer.getInt(checksumPosition)) {
+      throw new IOException("Corrupt name tag snapshot " + this.snapshotPath);
+    }
+
+    try {
+      buffer.position(HEADER_SIZE);
+      int entries = buffer.getInt();
+      for (int i = 0; i < entries; i++) {
+        CustomNameTag customNameTag = NameTagCodec.readTag(buffer);
+        tags.put(customNameTag.getOriginalName(), customNameTag);
+      }
+    } catch (BufferUnderflowException exception) {
+      throw new IOException("Truncated name tag snapshot " + this.snapshotPath, exception);
+    }
+  }
+
+  private int replayLog(ByteBuffer buffer, Map<String, CustomNameTag> tags) {
+    if (buffer.limit() < HEADER_SIZE
+        || buffer.getInt(0) != LOG_MAGIC
+        || !isSupportedVersion(buffer.getInt(Integer.BYTES))) {
+      return 0;
+    }
+
+    int validLength = HEADER_SIZE;
+    buffer.position(HEADER_SIZE);
+    CRC32 checksum = new CRC32();
+    while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+      int length = buffer.getInt();
+      int expectedChecksum = buffer.getInt();
+      if (length <= 0 || length > buffer.remaining()) {
+        break;
+      }
+
+      checksum.reset();
+      checksum.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+      if ((int) checksum.getValue() != expectedChecksum) {
+        break;
+      }
+
+      ByteBuffer payload = buffer.slice(buffer.position(), length);
+      try {
+        byte operation = payload.get();
+        if (operation == PUT) {
+          CustomNameTag customNameTag = NameTagCodec.readTag(payload);
+          tags.put(customNameTag.getOriginalName(), customNameTag);
+        } else if (operation == REMOVE) {
+          tags.remove(NameTagCodec.readString(payload));
+        } else {
+          break;
+        }
+      } catch (IOException | BufferUnderflowException exception) {
+        break;
+      }
+
+      buffer.position(buffer.position() + length);
+      validLength = buffer.position();
+      this.logRecords++;
+    }
+
+    return validLength;
+  }
+
+  private static boolean isSupportedVersion(int version) {
+    // Newer versions only add optional fields, so older files can still be read
+    return version >= 1 && version <= FORMAT_VERSION;
+  }
+
+  private static ByteBuffer readFully(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Name tag store " + path + " is too large");
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+        // Read until the buffer is full
+      }
+
+      buffer.flip();
+      return buffer;
+    }
+  }
+}
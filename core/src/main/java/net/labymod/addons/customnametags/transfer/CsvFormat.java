@@ -0,0 +1,178 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.background.NameTagBackground;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Comma separated values as described in RFC 4180, with the columns {@code originalName},
+ * {@code customName}, {@code enabled}, {@code replaceScoreboard}, {@code uniqueId},
+ * {@code background}, {@code pattern} and {@code disabledContexts}. Only the first two columns are required and the header
+ * line is optional.
+ */
+final class CsvFormat implements NameTagFormat {
+
+  private static final String HEADER
+      = "originalName,customName,enabled,replaceScoreboard,uniqueId,background,pattern,"
+      + "disabledContexts";
+
+  @Override
+  public void read(
+      @NotNull Reader reader,
+      @NotNull Consumer<CustomNameTag> consumer
+  ) throws IOException {
+    List<String> record = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean firstRecord = true;
+    while (this.readRecord(reader, record, field)) {
+      if (firstRecord && !record.isEmpty() && record.get(0).equalsIgnoreCase("originalName")) {
+        firstRecord = false;
+        continue;
+      }
+
+      firstRecord = false;
+      if (record.size() == 1 && record.get(0).isBlank()) {
+        continue; // Empty line
+      }
+
+      CustomNameTag customNameTag = CustomNameTag.of(
+          column(record, 0, "").trim(),
+          column(record, 1, ""),
+          Boolean.parseBoolean(column(record, 2, "true").trim()),
+          Boolean.parseBoolean(column(record, 3, "false").trim()),
+          NameTagTransfer.parseUniqueId(column(record, 4, ""))
+      );
+      customNameTag.setBackground(NameTagBackground.parse(column(record, 5, "")));
+      customNameTag.setPattern(Boolean.parseBoolean(column(record, 6, "false").trim()));
+      customNameTag.setDisabledContexts(
+          NameTagTransfer.parseDisabledContexts(column(record, 7, ""))
+      );
+      consumer.accept(customNameTag);
+    }
+  }
+
+  @Override
+  public void writeHeader(@NotNull Writer writer) throws IOException {
+    writer.write(HEADER);
+    writer.write('\n');
+  }
+
+  @Override
+  public void write(
+      @NotNull Writer writer,
+      @NotNull CustomNameTag customNameTag
+  ) throws IOException {
+    writeField(writer, customNameTag.getOriginalName());
+    writer.write(',');
+    writeField(writer, customNameTag.getCustomName());
+    writer.write(',');
+    writer.write(Boolean.toString(customNameTag.isEnabled()));
+    writer.write(',');
+    writer.write(Boolean.toString(customNameTag.isReplaceScoreboard()));
+    writer.write(',');
+    if (customNameTag.getUniqueId() != null) {
+      writer.write(customNameTag.getUniqueId().toString());
+    }
+
+    writer.write(',');
+    if (customNameTag.getBackground() != null) {
+      writer.write(customNameTag.getBackground().toString());
+    }
+
+    writer.write(',');
+    writer.write(Boolean.toString(customNameTag.isPattern()));
+    writer.write(',');
+    writer.write(NameTagTransfer.formatDisabledContexts(customNameTag.getDisabledContexts()));
+    writer.write('\n');
+  }
+
+  /**
+   * Reads the next record character by character, so quoted fields may span several lines.
+   *
+   * @return whether a record was read or {@code false} at the end of the input
+   */
+  private boolean readRecord(Reader reader, List<String> record, StringBuilder field)
+      throws IOException {
+    record.clear();
+    field.setLength(0);
+
+    int character = reader.read();
+    if (character == -1) {
+      return false;
+    }
+
+    boolean quoted = false;
+    while (character != -1) {
+      if (quoted) {
+        if (character == '"') {
+          character = reader.read();
+          if (character != '"') {
+            quoted = false;
+            continue; // Closing quote, the character after it is handled unquoted
+          }
+        }
+
+        field.append((char) character);
+      } else if (character == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (character == ',') {
+        record.add(field.toString());
+        field.setLength(0);
+      } else if (character == '\n') {
+        break;
+      } else if (character != '\r') {
+        field.append((char) character);
+      }
+
+      character = reader.read();
+    }
+
+    if (quoted) {
+      throw new IOException("Unterminated quoted field in record " + record);
+    }
+
+    record.add(field.toString());
+    return true;
+  }
+
+  private static String column(List<String> record, int index, String defaultValue) {
+    if (index >= record.size() || record.get(index).isEmpty()) {
+      return defaultValue;
+    }
+
+    return record.get(index);
+  }
+
+  private static void writeField(Writer writer, String value) throws IOException {
+    if (value.indexOf(',') == -1 && value.indexOf('"') == -1
+        && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+      writer.write(value);
+      return;
+    }
+
+    writer.write('"');
+    writer.write(value.replace("\"", "\"\""));
+    writer.write('"');
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.transfer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.UUID;
+import java.util.function.Consumer;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.background.NameTagBackground;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * One JSON object per line, using the same field names as the configuration.
+ */
+final class JsonLinesFormat implements NameTagFormat {
+
+  @Override
+  public void read(
+      @NotNull Reader reader,
+      @NotNull Consumer<CustomNameTag> consumer
+  ) throws IOException {
+    JsonReader jsonReader = new JsonReader(reader);
+    jsonReader.setLenient(true); // Multiple top-level values are only allowed in lenient mode
+    while (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+      consumer.accept(this.readEntry(jsonReader));
+    }
+  }
+
+  @Override
+  public void writeHeader(@NotNull Writer writer) {
+    // JSON lines have no header
+  }
+
+  @Override
+  public void write(
+      @NotNull Writer writer,
+      @NotNull CustomNameTag customNameTag
+  ) throws IOException {
+    JsonWriter jsonWriter = new JsonWriter(writer);
+    jsonWriter.beginObject();
+    jsonWriter.name("originalName").value(customNameTag.getOriginalName());
+    jsonWriter.name("customName").value(customNameTag.getCustomName());
+    jsonWriter.name("enabled").value(customNameTag.isEnabled());
+    jsonWriter.name("replaceScoreboard").value(customNameTag.isReplaceScoreboard());
+    if (customNameTag.isPattern()) {
+      jsonWriter.name("pattern").value(true);
+    }
+
+    if (customNameTag.getUniqueId() != null) {
+      jsonWriter.name("uniqueId").value(customNameTag.getUniqueId().toString());
+    }
+
+    if (customNameTag.getBackground() != null) {
+      jsonWriter.name("background").value(customNameTag.getBackground().toString());
+    }
+
+    if (customNameTag.getDisabledContexts() != 0) {
+      jsonWriter.name("disabledContexts").value(
+          NameTagTransfer.formatDisabledContexts(customNameTag.getDisabledContexts())
+      );
+    }
+
+    jsonWriter.endObject();
+    jsonWriter.flush(); // Not closed, that would close the underlying writer
+    writer.write('\n');
+  }
+
+  private CustomNameTag readEntry(JsonReader reader) throws IOException {
+    String originalName = "";
+    String customName = "";
+    boolean enabled = true;
+    boolean replaceScoreboard = false;
+    UUID uniqueId = null;
+    NameTagBackground background = null;
+    boolean pattern = false;
+    int disabledContexts = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        continue;
+      }
+
+      switch (name) {
+        case "originalName" -> originalName = reader.nextString().trim();
+        case "customName" -> customName = reader.nextString();
+        case "enabled" -> enabled = reader.nextBoolean();
+        case "replaceScoreboard" -> replaceScoreboard = reader.nextBoolean();
+        case "uniqueId" -> uniqueId = NameTagTransfer.parseUniqueId(reader.nextString());
+        case "background" -> background = NameTagBackground.parse(reader.nextString());
+        case "pattern" -> pattern = reader.nextBoolean();
+        case "disabledContexts" ->
+            disabledContexts = NameTagTransfer.parseDisabledContexts(reader.nextString());
+        default -> reader.skipValue();
+      }
+    }
+
+    reader.endObject();
+    CustomNameTag customNameTag = CustomNameTag.of(
+        originalName,
+        customName,
+        enabled,
+        replaceScoreboard,
+        uniqueId
+    );
+    customNameTag.setBackground(background);
+    customNameTag.setPattern(pattern);
+    customNameTag.setDisabledContexts(disabledContexts);
+    return customNameTag;
+  }
+}
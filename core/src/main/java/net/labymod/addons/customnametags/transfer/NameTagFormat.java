@@ -0,0 +1,67 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.function.Consumer;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A file format custom name tags can be imported from and exported to. Formats read their input
+ * as a stream and hand out every entry as soon as it is complete.
+ */
+public interface NameTagFormat {
+
+  NameTagFormat JSON_LINES = new JsonLinesFormat();
+  NameTagFormat CSV = new CsvFormat();
+
+  /**
+   * Picks the format by the extension of the file name.
+   *
+   * @param fileName the name of the file
+   * @return the format or {@code null} if the extension is not supported
+   */
+  static @Nullable NameTagFormat byFileName(@NotNull String fileName) {
+    String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+    if (lowerCaseName.endsWith(".jsonl") || lowerCaseName.endsWith(".ndjson")) {
+      return JSON_LINES;
+    }
+
+    if (lowerCaseName.endsWith(".csv")) {
+      return CSV;
+    }
+
+    return null;
+  }
+
+  /**
+   * Reads all entries of the input. Entries are not validated, missing values are left empty.
+   *
+   * @param reader   the input to read
+   * @param consumer the consumer of every entry
+   * @throws IOException if the input could not be read or is malformed
+   */
+  void read(@NotNull Reader reader, @NotNull Consumer<CustomNameTag> consumer) throws IOException;
+
+  void writeHeader(@NotNull Writer writer) throws IOException;
+
+  void write(@NotNull Writer writer, @NotNull CustomNameTag customNameTag) throws IOException;
+}
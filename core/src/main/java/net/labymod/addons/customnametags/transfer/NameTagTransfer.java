@@ -0,0 +1,205 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.labymod.addons.customnametags.transfer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.CustomNameTagsConfiguration;
+import net.labymod.addons.customnametags.context.NameTagContext;
+import net.labymod.addons.customnametags.matcher.NamePatterns;
+import net.labymod.addons.customnametags.registry.NameTagRegistry;
+import net.labymod.addons.customnametags.registry.NameTagSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Imports and exports whole lists of custom name tags. Files are streamed, only the valid entries
+ * are kept in memory until they are published to the registry in a single edit.
+ */
+public final class NameTagTransfer {
+
+  private NameTagTransfer() {
+  }
+
+  /**
+   * Imports all valid entries of the file. Entries are validated like
+   * {@link CustomNameTagsConfiguration#removeInvalidNameTags()} does, existing tags with the same
+   * name are replaced.
+   *
+   * @param path     the file to import, its extension selects the format
+   * @param registry the registry to publish the tags to
+   * @return the number of imported and skipped entries
+   * @throws IOException if the file could not be read, is malformed, has an unknown extension or
+   *                     its patterns can not be compiled together with the existing ones
+   */
+  public static @NotNull ImportResult importFrom(
+      @NotNull Path path,
+      @NotNull NameTagRegistry registry
+  ) throws IOException {
+    NameTagFormat format = format(path);
+    List<CustomNameTag> customNameTags = new ArrayList<>();
+    int[] skipped = new int[1];
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      format.read(reader, customNameTag -> {
+        if (CustomNameTagsConfiguration.isValidNameTag(
+            customNameTag.getOriginalName(),
+            customNameTag
+        )) {
+          customNameTags.add(customNameTag);
+        } else {
+          skipped[0]++;
+        }
+      });
+    }
+
+    if (!customNameTags.isEmpty()) {
+      // Patterns that are valid on their own may still be too complex together with the others
+      NameTagSnapshot snapshot = registry.snapshot();
+      Map<String, CustomNameTag> tags = new HashMap<>(snapshot.tags());
+      for (CustomNameTag customNameTag : customNameTags) {
+        tags.put(customNameTag.getOriginalName(), customNameTag);
+      }
+
+      String patternError = NamePatterns.findCombinedError(snapshot.valuesWith(tags));
+      if (patternError != null) {
+        throw new IOException("The imported patterns can not be used: " + patternError);
+      }
+
+      registry.edit(editor -> {
+        for (CustomNameTag customNameTag : customNameTags) {
+          editor.put(customNameTag);
+        }
+      });
+    }
+
+    return new ImportResult(customNameTags.size(), skipped[0]);
+  }
+
+  /**
+   * Exports the tags to the file, replacing it if it exists.
+   *
+   * @param path           the file to export to, its extension selects the format
+   * @param customNameTags the tags to export
+   * @throws IOException if the file could not be written or has an unknown extension
+   */
+  public static void exportTo(
+      @NotNull Path path,
+      @NotNull Collection<CustomNameTag> customNameTags
+  ) throws IOException {
+    NameTagFormat format = format(path);
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      format.writeHeader(writer);
+      for (CustomNameTag customNameTag : customNameTags) {
+        format.write(writer, customNameTag);
+      }
+    }
+  }
+
+  static @Nullable UUID parseUniqueId(@NotNull String value) {
+    value = value.trim();
+    if (value.isEmpty()) {
+      return null;
+    }
+
+    try {
+      return UUID.fromString(value);
+    } catch (IllegalArgumentException exception) {
+      return null; // Keep the entry, it just is not bound to a player
+    }
+  }
+
+  /**
+   * Parses the disabled contexts of a tag, which are written as their lower case names separated
+   * by spaces. Unknown names are ignored.
+   *
+   * @param value the names of the disabled contexts
+   * @return the bit mask of the disabled contexts
+   */
+  static int parseDisabledContexts(@NotNull String value) {
+    int disabledContexts = 0;
+    for (String name : value.trim().split("\\s+")) {
+      for (NameTagContext context : NameTagContext.values()) {
+        if (context.name().equalsIgnoreCase(name)) {
+          disabledContexts |= context.mask();
+        }
+      }
+    }
+
+    return disabledContexts;
+  }
+
+  static @NotNull String formatDisabledContexts(int disabledContexts) {
+    StringBuilder builder = new StringBuilder();
+    for (NameTagContext context : NameTagContext.values()) {
+      if ((disabledContexts & context.mask()) == 0) {
+        continue;
+      }
+
+      if (!builder.isEmpty()) {
+        builder.append(' ');
+      }
+
+      builder.append(context.name().toLowerCase(Locale.ROOT));
+    }
+
+    return builder.toString();
+  }
+
+  private static NameTagFormat format(Path path) throws IOException {
+    NameTagFormat format = NameTagFormat.byFileName(path.getFileName().toString());
+    if (format == null) {
+      throw new IOException("Unsupported file type, use .csv or .jsonl: " + path);
+    }
+
+    return format;
+  }
+
+  public static final class ImportResult {
+
+    private final int imported;
+    private final int skipped;
+
+    private ImportResult(int imported, int skipped) {
+      this.imported = imported;
+      this.skipped = skipped;
+    }
+
+    public int imported() {
+      return this.imported;
+    }
+
+    public int skipped() {
+      return this.skipped;
+    }
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.transfer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.CustomNameTagsConfiguration;
+import net.labymod.addons.customnametags.registry.NameTagRegistry;
+import net.labymod.api.Laby;
+import net.labymod.api.util.logging.Logging;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Watches a directory for tag files that are shared by others, for example by the leaders of a
+ * clan. Every CSV or JSON lines file in it is loaded as shared tags, which apply like own tags
+ * but are never persisted.
+ *
+ * <p>Files are parsed on a background thread. Only the difference to the previous state of a
+ * changed file is handed to the render thread, where it is published as a single snapshot.
+ */
+public final class SharedTagDirectory {
+
+  private static final long QUIET_MILLIS = 250;
+
+  private final Path directory;
+  private final NameTagRegistry registry;
+  private final Logging logger;
+
+  // Only accessed by the watcher thread
+  private final Map<Path, Map<String, CustomNameTag>> files = new HashMap<>();
+  private final Map<String, CustomNameTag> publishedTags = new HashMap<>();
+
+  private WatchService watchService;
+  private Thread thread;
+
+  public SharedTagDirectory(
+      @NotNull Path directory,
+      @NotNull NameTagRegistry registry,
+      @NotNull Logging logger
+  ) {
+    this.directory = directory;
+    this.registry = registry;
+    this.logger = logger;
+  }
+
+  /**
+   * Creates the directory if necessary, loads the files that are already in it and starts
+   * watching it for changes.
+   *
+   * @throws IOException if the directory could not be created or watched
+   */
+  public void start() throws IOException {
+    Files.createDirectories(this.directory);
+    WatchService watchService = this.directory.getFileSystem().newWatchService();
+    this.directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+    Thread thread = new Thread(() -> this.watch(watchService), "CustomNameTags Shared Tags");
+    thread.setDaemon(true);
+    thread.start();
+
+    this.watchService = watchService;
+    this.thread = thread;
+  }
+
+  /**
+   * Stops watching the directory. The shared tags that were already published stay applied.
+   */
+  public void close() {
+    if (this.thread == null) {
+      return;
+    }
+
+    this.thread.interrupt();
+    try {
+      this.watchService.close();
+    } catch (IOException exception) {
+      this.logger.warn("Could not close the watcher of " + this.directory, exception);
+    }
+
+    this.thread = null;
+    this.watchService = null;
+  }
+
+  private void watch(WatchService watchService) {
+    Set<Path> changedFiles = new HashSet<>();
+    this.collectAllFiles(changedFiles);
+    this.apply(changedFiles);
+
+    try (watchService) {
+      while (true) {
+        WatchKey key = watchService.take();
+        boolean valid = this.collect(key, changedFiles);
+
+        // Editors write a file in several steps, wait until the directory is quiet
+        while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          valid &= this.collect(key, changedFiles);
+        }
+
+        this.apply(changedFiles);
+        changedFiles.clear();
+        if (!valid) {
+          this.logger.warn("Stopped watching the shared tags, " + this.directory
+              + " is no longer accessible");
+          return;
+        }
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException | IOException exception) {
+      // The watch service was closed, nothing left to watch
+    }
+  }
+
+  private boolean collect(WatchKey key, Set<Path> changedFiles) {
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        this.collectAllFiles(changedFiles); // Events were lost, check every file
+      } else {
+        changedFiles.add(this.directory.resolve((Path) event.context()));
+      }
+    }
+
+    return key.reset();
+  }
+
+  private void collectAllFiles(Set<Path> changedFiles) {
+    changedFiles.addAll(this.files.keySet()); // Finds deleted files as well
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+      for (Path path : stream) {
+        changedFiles.add(path);
+      }
+    } catch (IOException exception) {
+      this.logger.warn("Could not list the shared tags in " + this.directory, exception);
+    }
+  }
+
+  private void apply(Set<Path> changedFiles) {
+    Set<String> changedNames = new HashSet<>();
+    for (Path path : changedFiles) {
+      if (NameTagFormat.byFileName(path.getFileName().toString()) == null) {
+        continue;
+      }
+
+      Map<String, CustomNameTag> previousTags = this.files.get(path);
+      Map<String, CustomNameTag> tags = null;
+      if (Files.isRegularFile(path)) {
+        try {
+          tags = this.read(path);
+        } catch (IOException exception) {
+          // Possibly still being written, the next change of the file retries it
+          this.logger.warn("Could not read the shared tags of " + path, exception);
+          continue;
+        }
+      }
+
+      if (tags == null) {
+        this.files.remove(path);
+      } else {
+        this.files.put(path, tags);
+        changedNames.addAll(tags.keySet());
+      }
+
+      if (previousTags != null) {
+        changedNames.addAll(previousTags.keySet());
+      }
+    }
+
+    if (changedNames.isEmpty()) {
+      return;
+    }
+
+    // If several files share a name, the file that comes first alphabetically wins
+    List<Path> paths = new ArrayList<>(this.files.keySet());
+    paths.sort(null);
+
+    Map<String, CustomNameTag> changedTags = new HashMap<>();
+    Set<String> removedNames = new HashSet<>();
+    for (String name : changedNames) {
+      CustomNameTag customNameTag = null;
+      for (Path path : paths) {
+        customNameTag = this.files.get(path).get(name);
+        if (customNameTag != null) {
+          break;
+        }
+      }
+
+      CustomNameTag publishedTag = this.publishedTags.get(name);
+      if (customNameTag == null) {
+        if (publishedTag != null) {
+          this.publishedTags.remove(name);
+          removedNames.add(name);
+        }
+      } else if (publishedTag == null || !isSame(publishedTag, customNameTag)) {
+        this.publishedTags.put(name, customNameTag);
+        changedTags.put(name, customNameTag);
+      }
+    }
+
+    if (changedTags.isEmpty() && removedNames.isEmpty()) {
+      return;
+    }
+
+    this.logger.info("Applying " + changedTags.size() + " changed and " + removedNames.size()
+        + " removed shared tags");
+    Laby.labyAPI().minecraft().executeOnRenderThread(
+        () -> this.registry.updateSharedTags(changedTags, removedNames)
+    );
+  }
+
+  private Map<String, CustomNameTag> read(Path path) throws IOException {
+    NameTagFormat format = NameTagFormat.byFileName(path.getFileName().toString());
+    Map<String, CustomNameTag> tags = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      format.read(reader, customNameTag -> {
+        String originalName = customNameTag.getOriginalName();
+        if (CustomNameTagsConfiguration.isValidNameTag(originalName, customNameTag)) {
+          tags.putIfAbsent(originalName.toLowerCase(Locale.ROOT), customNameTag);
+        }
+      });
+    }
+
+    return tags;
+  }
+
+  private static boolean isSame(CustomNameTag first, CustomNameTag second) {
+    return first.getOriginalName().equals(second.getOriginalName())
+        && first.getCustomName().equals(second.getCustomName())
+        && first.isEnabled() == second.isEnabled()
+        && first.isReplaceScoreboard() == second.isReplaceScoreboard()
+        && first.isPattern() == second.isPattern()
+        && first.getDisabledContexts() == second.getDisabledContexts()
+        && Objects.equals(first.getUniqueId(), second.getUniqueId())
+        && String.valueOf(first.getBackground()).equals(String.valueOf(second.getBackground()));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes a piece of code allocates on the current thread.
+ */
+public final class Allocations {
+
+  private static final int WARMUP_ITERATIONS = 20_000;
+  private static final int MEASURED_ITERATIONS = 10_000;
+  private static final int ATTEMPTS = 5;
+  private static final ThreadMXBean THREADS
+      = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private Allocations() {
+  }
+
+  /**
+   * Runs the action until it is compiled and every buffer it uses has grown to its final size, and
+   * then counts the bytes allocated by further runs. A single allocation of the runtime itself,
+   * for example by a late recompilation, is spread over all measured runs and rounded away, and the
+   * measurement is repeated a few times so that only an action allocating in every attempt fails.
+   *
+   * @param action the action to measure
+   * @return the fewest bytes a single run allocated in any attempt
+   */
+  public static long bytesPerRun(Runnable action) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      action.run();
+    }
+
+    long fewestBytes = Long.MAX_VALUE;
+    for (int attempt = 0; attempt < ATTEMPTS && fewestBytes > 0; attempt++) {
+      // The first query may allocate itself
+      THREADS.getCurrentThreadAllocatedBytes();
+      long before = THREADS.getCurrentThreadAllocatedBytes();
+      for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+        action.run();
+      }
+
+      long bytes = THREADS.getCurrentThreadAllocatedBytes() - before;
+      fewestBytes = Math.min(fewestBytes, bytes / MEASURED_ITERATIONS);
+    }
+
+    return fewestBytes;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import net.labymod.addons.customnametags.Allocations;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.junit.jupiter.api.Test;
+
+class NameAutomatonTest {
+
+  private static final CustomNameTag STEVE = CustomNameTag.of("Steve", "&aKing", true, false);
+  private static final CustomNameTag STEVE_JOBS = CustomNameTag.of(
+      "Steve Jobs", "&bApple", true, false
+  );
+  private static final CustomNameTag JOBS = CustomNameTag.of("Jobs", "&cWork", true, false);
+  private static final CustomNameTag ALEX = CustomNameTag.of("Alex", "&dQueen", true, false);
+
+  private final MatchBuffer buffer = new MatchBuffer();
+
+  @Test
+  void findsEveryNameInOneScan() {
+    NameAutomaton automaton = NameAutomaton.compile(List.of(STEVE, ALEX));
+
+    assertEquals(2, automaton.findMatches("Steve killed Alex!", this.buffer));
+    this.assertMatch(0, 0, 5, STEVE);
+    this.assertMatch(1, 13, 17, ALEX);
+  }
+
+  @Test
+  void requiresWordBoundaries() {
+    NameAutomaton automaton = NameAutomaton.compile(List.of(STEVE));
+
+    assertEquals(0, automaton.findMatches("Steven xSteve Steve_ Steve2", this.buffer));
+    assertEquals(2, automaton.findMatches("[Steve] Steve.", this.buffer));
+    this.assertMatch(0, 1, 6, STEVE);
+    this.assertMatch(1, 8, 13, STEVE);
+  }
+
+  @Test
+  void prefersTheLongestOfOverlappingNames() {
+    NameAutomaton automaton = NameAutomaton.compile(List.of(STEVE, STEVE_JOBS, JOBS));
+
+    assertEquals(2, automaton.findMatches("Steve Jobs met Jobs", this.buffer));
+    this.assertMatch(0, 0, 10, STEVE_JOBS);
+    this.assertMatch(1, 15, 19, JOBS);
+  }
+
+  @Test
+  void ignoresDisabledAndPatternTags() {
+    CustomNameTag pattern = CustomNameTag.of("Al.x", "&dQueen", true, false);
+    pattern.setPattern(true);
+    NameAutomaton automaton = NameAutomaton.compile(List.of(
+        CustomNameTag.of("Steve", "&aKing", false, false),
+        pattern
+    ));
+
+    assertTrue(automaton.isEmpty());
+    assertFalse(automaton.containsAny("Steve and Alex"));
+    assertEquals(0, automaton.findMatches("Steve and Alex", this.buffer));
+  }
+
+  @Test
+  void reportsNoMatch() {
+    NameAutomaton automaton = NameAutomaton.compile(List.of(STEVE, ALEX));
+
+    assertFalse(automaton.containsAny("Nobody is online"));
+    assertEquals(0, automaton.findMatches("Nobody is online", this.buffer));
+    assertEquals(0, this.buffer.size());
+  }
+
+  @Test
+  void scansWithoutAllocating() {
+    NameAutomaton automaton = NameAutomaton.compile(List.of(STEVE, STEVE_JOBS, JOBS, ALEX));
+    String text = "Steve Jobs met Alex and Steven at the game";
+
+    assertEquals(0, Allocations.bytesPerRun(() -> automaton.findMatches(text, this.buffer)));
+    assertEquals(0, Allocations.bytesPerRun(() -> automaton.containsAny(text)));
+  }
+
+  private void assertMatch(int index, int start, int end, CustomNameTag customNameTag) {
+    assertEquals(start, this.buffer.start(index));
+    assertEquals(end, this.buffer.end(index));
+    assertSame(customNameTag, this.buffer.tag(index));
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.labymod.addons.customnametags.Allocations;
+import net.labymod.addons.customnametags.CustomNameTag;
+import org.junit.jupiter.api.Test;
+
+class SingleNameMatcherTest {
+
+  private static final CustomNameTag STEVE = CustomNameTag.of("Steve", "&aKing", true, false);
+
+  private final SingleNameMatcher matcher = new SingleNameMatcher().set("Steve", STEVE);
+  private final MatchBuffer buffer = new MatchBuffer();
+
+  @Test
+  void findsEveryOccurrence() {
+    assertEquals(2, this.matcher.findMatches("Steve, Steve!", this.buffer));
+    assertEquals(0, this.buffer.start(0));
+    assertEquals(5, this.buffer.end(0));
+    assertEquals(7, this.buffer.start(1));
+    assertEquals(12, this.buffer.end(1));
+  }
+
+  @Test
+  void requiresWordBoundaries() {
+    assertEquals(0, this.matcher.findMatches("Steven xSteve Steve_", this.buffer));
+
+    // A rejected occurrence must not hide the next one
+    assertEquals(1, this.matcher.findMatches("SteveSteve Steve", this.buffer));
+    assertEquals(11, this.buffer.start(0));
+  }
+
+  @Test
+  void matchesViewsLikeStrings() {
+    CharSequence view = new StringBuilder("[VIP] Steve");
+
+    assertTrue(this.matcher.containsAny(view));
+    assertEquals(1, this.matcher.findMatches(view, this.buffer));
+    assertEquals(6, this.buffer.start(0));
+  }
+
+  @Test
+  void reportsNoMatch() {
+    assertFalse(this.matcher.containsAny("Alex"));
+    assertEquals(0, this.matcher.findMatches("Alex", this.buffer));
+    assertEquals(0, new SingleNameMatcher().set("", STEVE).findMatches("Steve", this.buffer));
+  }
+
+  @Test
+  void scansWithoutAllocating() {
+    String text = "Steve met Steven and Steve";
+    CharSequence view = new StringBuilder(text);
+
+    assertEquals(0, Allocations.bytesPerRun(() -> this.matcher.findMatches(text, this.buffer)));
+    assertEquals(0, Allocations.bytesPerRun(() -> this.matcher.findMatches(view, this.buffer)));
+  }
+}
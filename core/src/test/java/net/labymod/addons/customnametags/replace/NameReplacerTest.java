@@ -0,0 +1,141 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.replace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import net.labymod.addons.customnametags.Allocations;
+import net.labymod.addons.customnametags.CustomNameTag;
+import net.labymod.addons.customnametags.matcher.NameAutomaton;
+import net.labymod.addons.customnametags.matcher.NameMatcher;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.component.format.Style;
+import net.labymod.api.client.component.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+class NameReplacerTest {
+
+  private static final Style RED = mock(Style.class, "red");
+  private static final Style BLUE = mock(Style.class, "blue");
+  private static final Style NAME = mock(Style.class, "name");
+
+  private static final CustomNameTag STEVE = CustomNameTag.of("Steve", "&aKing&lS", true, false);
+  private static final CustomNameTag STEVE_JOBS = CustomNameTag.of(
+      "Steve Jobs", "&bApple", true, false
+  );
+  private static final CustomNameTag ALEX = CustomNameTag.of("Alex", "&dQueen", true, false);
+
+  private final NameReplacer replacer = new NameReplacer();
+  private final NameMatcher matcher = NameAutomaton.compile(List.of(STEVE, STEVE_JOBS, ALEX));
+
+  private MockedStatic<Component> components;
+  private MockedStatic<LegacyComponentSerializer> serializers;
+
+  @BeforeEach
+  void setUp() {
+    // The display names inherit the style of the replaced text, like the real merge does
+    when(NAME.merge(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    LegacyComponentSerializer serializer = mock(LegacyComponentSerializer.class);
+    when(serializer.deserialize(anyString())).thenAnswer(invocation -> TestComponents.text(
+        invocation.<String>getArgument(0).replaceAll("&[0-9a-fk-or]", ""),
+        NAME
+    ));
+
+    this.components = mockStatic(Component.class);
+    this.components.when(() -> Component.text(anyString(), any())).thenAnswer(
+        invocation -> TestComponents.text(invocation.getArgument(0), invocation.getArgument(1))
+    );
+    this.serializers = mockStatic(LegacyComponentSerializer.class);
+    this.serializers.when(LegacyComponentSerializer::legacyAmpersand).thenReturn(serializer);
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.serializers.close();
+    this.components.close();
+  }
+
+  @Test
+  void replacesNamesInTheirStyle() {
+    TextComponent message = TestComponents.text("Steve joined, ", RED);
+    message.append(TestComponents.text("Alex left", BLUE));
+
+    assertTrue(this.replacer.replace(message, this.matcher));
+    assertEquals(
+        List.of("KingS@red", " joined, @red", "Queen@blue", " left@blue"),
+        TestComponents.styledTexts(message)
+    );
+  }
+
+  @Test
+  void respectsWordBoundariesAndPrefersLongerNames() {
+    TextComponent message = TestComponents.text("Steve Jobs met Steven and Alex_1");
+
+    assertTrue(this.replacer.replace(message, this.matcher));
+    assertEquals("Apple met Steven and Alex_1", TestComponents.plainText(message));
+  }
+
+  @Test
+  void spreadsASplitNameOverTheStylesOfItsComponents() {
+    TextComponent message = TestComponents.text("Hi Ste", RED);
+    message.append(TestComponents.text("ve!", BLUE));
+
+    assertTrue(this.replacer.replace(message, this.matcher));
+    assertEquals(
+        List.of("Hi @red", "Kin@red", "gS@blue", "!@blue"),
+        TestComponents.styledTexts(message)
+    );
+  }
+
+  @Test
+  void leavesTreesWithoutNamesUntouched() {
+    TextComponent message = TestComponents.text("Steven joined ", RED);
+    message.append(TestComponents.text("the game", BLUE));
+
+    assertFalse(this.replacer.replace(message, this.matcher));
+    assertEquals(
+        List.of("Steven joined @red", "the game@blue"),
+        TestComponents.styledTexts(message)
+    );
+  }
+
+  @Test
+  void scansTreesWithoutNamesWithoutAllocating() {
+    TextComponent message = TestComponents.text("[VIP] ", RED);
+    message.append(TestComponents.text("Guest42", BLUE));
+    message.append(TestComponents.text(" joined the game", RED));
+
+    assertEquals(0, Allocations.bytesPerRun(() -> this.replacer.replace(message, this.matcher)));
+    assertEquals(
+        0,
+        Allocations.bytesPerRun(() -> this.replacer.mayContain(message, this.matcher))
+    );
+  }
+}
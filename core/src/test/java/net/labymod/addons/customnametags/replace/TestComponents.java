@@ -0,0 +1,139 @@
+/*
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.labymod.addons.customnametags.replace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import net.labymod.api.client.component.Component;
+import net.labymod.api.client.component.TextComponent;
+import net.labymod.api.client.component.format.Style;
+
+/**
+ * Text components that work without the game. Only the methods the replacement uses are
+ * implemented, reading a component does not allocate, so allocations of the code under test can
+ * be counted.
+ */
+final class TestComponents {
+
+  private TestComponents() {
+  }
+
+  static TextComponent text(String text) {
+    return text(text, null);
+  }
+
+  static TextComponent text(String text, Style style) {
+    Node node = new Node(text, style);
+    node.proxy = (TextComponent) Proxy.newProxyInstance(
+        TestComponents.class.getClassLoader(),
+        new Class<?>[]{TextComponent.class},
+        node
+    );
+    return node.proxy;
+  }
+
+  /**
+   * Lists the non-empty texts of the tree in render order, each followed by its style.
+   */
+  static List<String> styledTexts(Component component) {
+    List<String> texts = new ArrayList<>();
+    collect(component, texts);
+    return texts;
+  }
+
+  static String plainText(Component component) {
+    StringBuilder builder = new StringBuilder();
+    for (String text : styledTexts(component)) {
+      builder.append(text, 0, text.lastIndexOf('@'));
+    }
+
+    return builder.toString();
+  }
+
+  private static void collect(Component component, List<String> texts) {
+    String text = ((TextComponent) component).getText();
+    if (!text.isEmpty()) {
+      texts.add(text + "@" + component.style());
+    }
+
+    for (Component child : component.getChildren()) {
+      collect(child, texts);
+    }
+  }
+
+  private static final class Node implements InvocationHandler {
+
+    private String text;
+    private Style style;
+    private List<Component> children = new ArrayList<>();
+    private TextComponent proxy;
+
+    private Node(String text, Style style) {
+      this.text = text;
+      this.style = style;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] arguments) {
+      int parameters = method.getParameterCount();
+      switch (method.getName()) {
+        case "getText":
+          return this.text;
+        case "text":
+          this.text = (String) arguments[0];
+          return this.proxy;
+        case "getChildren":
+          return this.children;
+        case "setChildren":
+          this.children = new ArrayList<>((List<Component>) arguments[0]);
+          return this.proxy;
+        case "append":
+          if (parameters == 1) {
+            this.children.add((Component) arguments[0]);
+          } else {
+            this.children.add((int) arguments[0], (Component) arguments[1]);
+          }
+          return this.proxy;
+        case "style":
+          if (parameters == 0) {
+            return this.style;
+          }
+
+          this.style = (Style) arguments[0];
+          return this.proxy;
+        case "copy":
+          TextComponent copy = text(this.text, this.style);
+          for (Component child : this.children) {
+            copy.append(child.copy());
+          }
+          return copy;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == arguments[0];
+        case "toString":
+          return this.text + "@" + this.style + this.children;
+        default:
+          throw new UnsupportedOperationException(method.toString());
+      }
+    }
+  }
+}